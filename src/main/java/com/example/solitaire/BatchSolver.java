@@ -0,0 +1,374 @@
+package com.example.solitaire;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Command-line batch solver: deals every deal number in a range and solves the deals on all cores.
+ * - One tab-separated line per deal as it finishes: seed, outcome, nodes, ms, solution length
+ * - A closing summary with throughput (deals/sec) and win rates
+ * - Each worker thread keeps its own sequential Solver, so deals run in parallel with no
+ *   sharing; workers and their solvers' tables are made once and reused for every shard
+ *
+ * With --work-dir the range is split into shards that any number of processes, on this or
+ * other machines sharing the directory, work through together:
+ * - A shard is leased by holding an OS file lock on shard-N.lock while it is solved; the
+ *   lock goes away with the process, so a crashed or killed run frees its shard
+ * - A finished shard is checkpointed by atomically renaming its results to shard-N.tsv;
+ *   restarting skips every shard that has one and redoes only the interrupted ones
+ * - job.properties pins the seed range and rules, so a directory cannot mix two jobs
+ *
+ * With --index every result also goes into a DealIndex for the whole range, which several
+ * processes may share. Deals the index already decides are read back instead of solved again;
+ * their lines show "-" for nodes and ms, and they count towards the win rates but not the
+ * throughput figures.
+ *
+ * Usage: BatchSolver firstSeed lastSeed [--draw 1|3] [--threads N] [--nodes N] [--millis N] [--table-mb N]
+ *                    [--work-dir DIR] [--shard-size N] [--index FILE]
+ */
+public class BatchSolver {
+    private int drawCount = KlondikeEngine.DRAW_COUNT;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long maxNodes = Solver.DEFAULT_MAX_NODES;
+    private long maxMillis = Long.MAX_VALUE;
+    private long tableBytes = Solver.DEFAULT_TABLE_BYTES;
+    private DealIndex index;             // results read back, when --index is given
+    private DealIndex.Writer indexWriter; // and where new ones are recorded
+    private ExecutorService pool;         // worker threads, started by the first run
+    private Solver[] solvers;             // one per worker, made by its first deal
+    private KlondikeEngine[] engines;
+    
+    private static final String SUMMARY_TAG = "#summary";
+    private static final long DEFAULT_SHARD_SIZE = 10_000;
+    
+    /** Totals over a run of deals. */
+    static final class Summary {
+        long deals;
+        long solved;
+        long unsolvable;
+        long unknown;
+        long indexed; // read back from the index, not solved
+        long nodes;
+        long millis; // wall-clock
+        
+        synchronized void add(Solver.Result result, boolean fromIndex) {
+            deals++;
+            if (fromIndex) {
+                indexed++;
+            }
+            nodes += result.nodes;
+            switch (result.outcome) {
+                case SOLVED: solved++; break;
+                case UNSOLVABLE: unsolvable++; break;
+                default: unknown++; break;
+            }
+        }
+        
+        synchronized void add(Summary other) {
+            deals += other.deals;
+            solved += other.solved;
+            unsolvable += other.unsolvable;
+            unknown += other.unknown;
+            indexed += other.indexed;
+            nodes += other.nodes;
+            millis += other.millis;
+        }
+        
+        /** Machine-readable trailer line, read back by {@link #parse}. */
+        String format() {
+            return SUMMARY_TAG + "\t" + deals + "\t" + solved + "\t" + unsolvable + "\t" + unknown
+                + "\t" + nodes + "\t" + millis + "\t" + indexed;
+        }
+        
+        static Summary parse(String line) {
+            String[] fields = line.split("\t");
+            Summary summary = new Summary();
+            summary.deals = Long.parseLong(fields[1]);
+            summary.solved = Long.parseLong(fields[2]);
+            summary.unsolvable = Long.parseLong(fields[3]);
+            summary.unknown = Long.parseLong(fields[4]);
+            summary.nodes = Long.parseLong(fields[5]);
+            summary.millis = Long.parseLong(fields[6]);
+            summary.indexed = fields.length > 7 ? Long.parseLong(fields[7]) : 0; // older shards had none
+            return summary;
+        }
+        
+        void print(PrintStream out) {
+            double seconds = Math.max(millis, 1) / 1000.0;
+            long decided = solved + unsolvable;
+            out.printf("# deals %d  solved %d  unsolvable %d  unknown %d%n", deals, solved, unsolvable, unknown);
+            out.printf("# win rate %.2f%% of all deals, %.2f%% of decided deals%n",
+                100.0 * solved / Math.max(deals, 1), 100.0 * solved / Math.max(decided, 1));
+            if (indexed > 0) {
+                out.printf("# %d deals read from the index, left out of the rates below%n", indexed);
+            }
+            out.printf("# %.1f s  %.1f deals/sec  %.0f nodes/sec%n", seconds, (deals - indexed) / seconds, nodes / seconds);
+        }
+    }
+    
+    public static void main(String[] args) {
+        BatchSolver batch = new BatchSolver();
+        long first;
+        long last;
+        Path workDir = null;
+        Path indexPath = null;
+        long shardSize = DEFAULT_SHARD_SIZE;
+        try {
+            first = Long.parseLong(args[0]);
+            last = Long.parseLong(args[1]);
+            for (int i = 2; i < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--draw": batch.drawCount = Integer.parseInt(value); break;
+                    case "--threads": batch.threads = Integer.parseInt(value); break;
+                    case "--nodes": batch.maxNodes = Long.parseLong(value); break;
+                    case "--millis": batch.maxMillis = Long.parseLong(value); break;
+                    case "--table-mb": batch.tableBytes = Long.parseLong(value) << 20; break;
+                    case "--work-dir": workDir = Paths.get(value); break;
+                    case "--shard-size": shardSize = Long.parseLong(value); break;
+                    case "--index": indexPath = Paths.get(value); break;
+                    default: throw new IllegalArgumentException(args[i]);
+                }
+            }
+            if (batch.drawCount != 1 && batch.drawCount != 3 || batch.threads < 1 || first > last || shardSize < 1) {
+                throw new IllegalArgumentException();
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Usage: BatchSolver firstSeed lastSeed [--draw 1|3] [--threads N]"
+                + " [--nodes N] [--millis N] [--table-mb N] [--work-dir DIR] [--shard-size N] [--index FILE]");
+            System.exit(2);
+            return;
+        }
+        
+        // Flushed at every line, so results stream out as deals finish and a killed run keeps them
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), true);
+        try {
+            if (indexPath != null) {
+                batch.indexWriter = new DealIndex.Writer(indexPath, batch.drawCount, first, last);
+                batch.index = DealIndex.open(indexPath);
+            }
+            if (workDir != null) {
+                batch.runShards(workDir, first, last, shardSize, out);
+            } else {
+                out.println("# seed\toutcome\tnodes\tms\tlength");
+                Summary summary = batch.run(first, last, out);
+                summary.print(out);
+            }
+            batch.closeIndex();
+        } catch (IOException | UncheckedIOException e) {
+            out.flush();
+            System.err.println("Batch failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            batch.shutdown();
+        }
+        out.flush();
+    }
+    
+    private void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+    
+    /** The worker threads, and a slot for each worker's solver, made on first use. */
+    private ExecutorService pool() {
+        if (pool == null) {
+            AtomicInteger names = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "batch-solver-" + names.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+            solvers = new Solver[threads];
+            engines = new KlondikeEngine[threads];
+        }
+        return pool;
+    }
+    
+    private void closeIndex() throws IOException {
+        if (index != null) {
+            index.close();
+            indexWriter.close();
+        }
+    }
+    
+    /**
+     * Work through the shards of first..last in {@code dir} alongside any other processes
+     * using it, then report on every shard finished so far.
+     */
+    void runShards(Path dir, long first, long last, long shardSize, PrintStream out) throws IOException {
+        Files.createDirectories(dir);
+        checkJob(dir, first, last, shardSize);
+        long shards = (last - first) / shardSize + 1;
+        
+        for (long shard = 0; shard < shards; shard++) {
+            Path results = dir.resolve("shard-" + shard + ".tsv");
+            if (Files.exists(results)) continue;
+            try (FileChannel channel = FileChannel.open(dir.resolve("shard-" + shard + ".lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock lease = channel.tryLock()) {
+                // Leased by another process, or finished between the check and the lock
+                if (lease == null || Files.exists(results)) continue;
+                
+                long low = first + shard * shardSize;
+                long high = Math.min(last, low + shardSize - 1);
+                Path partial = dir.resolve("shard-" + shard + ".tsv.tmp");
+                Summary summary;
+                try (PrintStream shardOut = new PrintStream(new BufferedOutputStream(Files.newOutputStream(partial)), false)) {
+                    summary = run(low, high, shardOut);
+                    shardOut.println(summary.format());
+                }
+                Files.move(partial, results, StandardCopyOption.ATOMIC_MOVE);
+                out.printf("# shard %d (seeds %d-%d) done: %d solved of %d%n", shard, low, high, summary.solved, summary.deals);
+                out.flush();
+            }
+        }
+        
+        // Totals over every finished shard, whichever process solved it
+        Summary total = new Summary();
+        long finished = 0;
+        for (long shard = 0; shard < shards; shard++) {
+            Path results = dir.resolve("shard-" + shard + ".tsv");
+            if (!Files.exists(results)) continue;
+            List<String> lines = Files.readAllLines(results);
+            total.add(Summary.parse(lines.get(lines.size() - 1)));
+            finished++;
+        }
+        out.printf("# %d of %d shards finished (times are summed over shards)%n", finished, shards);
+        total.print(out);
+    }
+    
+    /** Record the job in a fresh work directory, or check that an existing one holds the same job. */
+    private void checkJob(Path dir, long first, long last, long shardSize) throws IOException {
+        Properties job = new Properties();
+        job.setProperty("first", Long.toString(first));
+        job.setProperty("last", Long.toString(last));
+        job.setProperty("shardSize", Long.toString(shardSize));
+        job.setProperty("draw", Integer.toString(drawCount));
+        job.setProperty("nodes", Long.toString(maxNodes));
+        job.setProperty("millis", Long.toString(maxMillis));
+        
+        Path file = dir.resolve("job.properties");
+        if (!Files.exists(file)) {
+            Path partial = Files.createTempFile(dir, "job", ".tmp");
+            try (Writer writer = Files.newBufferedWriter(partial)) {
+                job.store(writer, "BatchSolver job");
+            }
+            // A hard link publishes the complete file atomically and, unlike a rename, never
+            // replaces one another process published first; that one is checked below instead
+            try {
+                Files.createLink(file, partial);
+            } catch (FileAlreadyExistsException e) {
+                // Lost the race: compare against the winner's job
+            } finally {
+                Files.delete(partial);
+            }
+        }
+        Properties existing = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            existing.load(reader);
+        }
+        if (!existing.equals(job)) {
+            throw new IOException(dir + " holds a different job: " + existing);
+        }
+    }
+    
+    /**
+     * Deal and solve seeds first..last (inclusive), writing one line per deal to {@code out}.
+     * Throws UncheckedIOException if the index could not be written.
+     */
+    Summary run(long first, long last, PrintStream out) {
+        long begin = System.nanoTime();
+        Summary summary = new Summary();
+        AtomicLong next = new AtomicLong(first);
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        List<Future<?>> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers.add(pool().submit(() -> {
+                // Each worker slot is only ever used by one task at a time
+                if (solvers[worker] == null) {
+                    solvers[worker] = new Solver(maxNodes, maxMillis, tableBytes);
+                    engines[worker] = new KlondikeEngine();
+                    engines[worker].setDrawCount(drawCount);
+                }
+                Solver solver = solvers[worker];
+                KlondikeEngine engine = engines[worker];
+                for (long seed = next.getAndIncrement(); seed <= last && failure.get() == null; seed = next.getAndIncrement()) {
+                    Solver.Result result;
+                    boolean fromIndex;
+                    try {
+                        result = indexed(seed);
+                        fromIndex = result != null;
+                        if (!fromIndex) {
+                            engine.newGame(seed);
+                            result = solver.solve(engine);
+                            if (indexWriter != null) {
+                                indexWriter.put(seed, result);
+                            }
+                        }
+                    } catch (IOException e) {
+                        failure.compareAndSet(null, e);
+                        break;
+                    }
+                    summary.add(result, fromIndex);
+                    String cost = fromIndex ? "-\t-" : result.nodes + "\t" + result.millis;
+                    String line = seed + "\t" + result.outcome + "\t" + cost + "\t" + result.solution.length;
+                    synchronized (out) {
+                        out.println(line);
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Batch worker failed", e.getCause());
+            }
+        }
+        summary.millis = (System.nanoTime() - begin) / 1_000_000;
+        if (failure.get() != null) {
+            throw new UncheckedIOException(failure.get());
+        }
+        return summary;
+    }
+    
+    /** The index's result for a deal it has already decided, or null if it must be solved. */
+    private Solver.Result indexed(long seed) throws IOException {
+        Solver.Outcome outcome = index == null ? null : index.outcome(seed);
+        if (outcome == null || outcome == Solver.Outcome.UNKNOWN) {
+            return null;
+        }
+        int[] solution = outcome == Solver.Outcome.SOLVED ? index.solution(seed) : new int[0];
+        return new Solver.Result(outcome, solution, 0, 0); // nothing searched
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.solitaire;
+
+import java.util.Arrays;
+
+/**
+ * Unsynchronized, array-backed pile of card codes.
+ * - Runs move between piles with a single System.arraycopy
+ * - Every change is written through to a shared card-to-(pile, index) location table,
+ *   so finding a card never needs a search
+ * - A Zobrist hash of the contents is updated with each card added, removed or flipped,
+ *   along with one hash per suit from suit-free keys, for KlondikeEngine.canonicalHash
+ */
+final class CardPile {
+    final int id;
+    private final byte[] cards;
+    private final short[] locations; // indexed by card id: pile << 8 | index
+    private int size;
+    private long hash;
+    private final long[] suitHashes = new long[4];
+    
+    CardPile(int id, int capacity, short[] locations) {
+        this.id = id;
+        this.cards = new byte[capacity];
+        this.locations = locations;
+    }
+    
+    int size() { return size; }
+    boolean isEmpty() { return size == 0; }
+    int get(int index) { return cards[index]; }
+    long hash() { return hash; }
+    
+    /** Hash of where this pile holds cards of {@code suit}, with keys that ignore the suit. */
+    long suitHash(int suit) { return suitHashes[suit]; }
+    
+    /** Top card, or Cards.NONE if the pile is empty. */
+    int top() {
+        return size == 0 ? Cards.NONE : cards[size - 1];
+    }
+    
+    void clear() {
+        size = 0;
+        hash = 0;
+        Arrays.fill(suitHashes, 0);
+    }
+    
+    void push(int card) {
+        cards[size] = (byte) card;
+        locations[Cards.id(card)] = (short) (id << 8 | size);
+        toggle(size, card);
+        size++;
+    }
+    
+    int pop() {
+        int card = cards[--size];
+        toggle(size, card);
+        return card;
+    }
+    
+    /** Replace the card at a position, e.g. to flip it. */
+    void set(int index, int card) {
+        toggle(index, cards[index]);
+        toggle(index, card);
+        cards[index] = (byte) card;
+        locations[Cards.id(card)] = (short) (id << 8 | index);
+    }
+    
+    /** Move the run from {@code index} to the top of this pile onto {@code target}. */
+    void moveRunTo(int index, CardPile target) {
+        int count = size - index;
+        System.arraycopy(cards, index, target.cards, target.size, count);
+        for (int i = 0; i < count; i++) {
+            int card = cards[index + i];
+            locations[Cards.id(card)] = (short) (target.id << 8 | target.size + i);
+            toggle(index + i, card);
+            target.toggle(target.size + i, card);
+        }
+        target.size += count;
+        size = index;
+    }
+    
+    /** Remove one card, closing the gap above it. */
+    int removeAt(int index) {
+        int card = cards[index];
+        unhash(index);
+        int above = size - index - 1;
+        System.arraycopy(cards, index + 1, cards, index, above);
+        size--;
+        for (int i = index; i < size; i++) {
+            locations[Cards.id(cards[i])] = (short) (id << 8 | i);
+            toggle(i, cards[i]);
+        }
+        return card;
+    }
+    
+    /** Insert one card, shifting the cards above it up; the inverse of removeAt. */
+    void insertAt(int index, int card) {
+        unhash(index);
+        System.arraycopy(cards, index, cards, index + 1, size - index);
+        cards[index] = (byte) card;
+        size++;
+        for (int i = index; i < size; i++) {
+            locations[Cards.id(cards[i])] = (short) (id << 8 | i);
+            toggle(i, cards[i]);
+        }
+    }
+    
+    /** Remove the cards from {@code index} up from the hash before they shift. */
+    private void unhash(int index) {
+        for (int i = index; i < size; i++) {
+            toggle(i, cards[i]);
+        }
+    }
+    
+    /** Add a card at a position to the hashes, or take it out again. */
+    private void toggle(int index, int card) {
+        hash ^= Zobrist.card(id, index, card);
+        suitHashes[Cards.suit(card)] ^= Zobrist.suitFree(id, index, card);
+    }
+    
+    /** Copy the pile contents into {@code out} at {@code offset}; returns the new offset. */
+    int copyTo(byte[] out, int offset) {
+        System.arraycopy(cards, 0, out, offset, size);
+        return offset + size;
+    }
+    
+    /** Load {@code count} cards from {@code in} at {@code offset}; returns the new offset. */
+    int copyFrom(byte[] in, int offset, int count) {
+        clear();
+        for (int i = 0; i < count; i++) {
+            push(in[offset + i]);
+        }
+        return offset + count;
+    }
+}
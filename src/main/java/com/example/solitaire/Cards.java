@@ -0,0 +1,82 @@
+package com.example.solitaire;
+
+/**
+ * Compact card encoding used by the engine.
+ * - A card is a small int: suit * 13 + (rank - 1), so 0..51
+ * - FACE_UP (0x40) is or-ed in while the card is showing
+ * - Rank, suit and colour come from lookup tables, so rule checks are plain integer ops
+ */
+public final class Cards {
+    public static final int DECK_SIZE = 52;
+    public static final int FACE_UP = 0x40;
+    public static final int NONE = -1;
+    
+    // Suits in deck order; hearts and diamonds are red
+    public static final String[] SUITS = {"♠", "♥", "♦", "♣"};
+    
+    private static final byte[] RANK = new byte[128];
+    private static final byte[] SUIT = new byte[128];
+    private static final byte[] COLOR = new byte[128]; // 0 = black, 1 = red
+    // (rank, colour) key a card presents, and the key a tableau top card accepts
+    private static final byte[] KEY = new byte[128];
+    private static final byte[] ACCEPTS = new byte[128];
+    
+    static {
+        for (int code = 0; code < 128; code++) {
+            int c = code & 0x3F;
+            if (c >= DECK_SIZE) {
+                ACCEPTS[code] = -1;
+                continue;
+            }
+            int suit = c / 13;
+            int rank = c % 13 + 1;
+            int color = (suit == 1 || suit == 2) ? 1 : 0;
+            RANK[code] = (byte) rank;
+            SUIT[code] = (byte) suit;
+            COLOR[code] = (byte) color;
+            KEY[code] = (byte) (rank << 1 | color);
+            // Face-down cards and aces accept nothing
+            ACCEPTS[code] = (byte) ((code & FACE_UP) != 0 && rank > 1 ? ((rank - 1) << 1 | (color ^ 1)) : -1);
+        }
+    }
+    
+    private Cards() {}
+    
+    public static int of(int suit, int rank) {
+        return suit * 13 + rank - 1;
+    }
+    
+    public static int rank(int card) { return RANK[card]; }
+    public static int suit(int card) { return SUIT[card]; }
+    public static boolean isRed(int card) { return COLOR[card] != 0; }
+    public static boolean isBlack(int card) { return COLOR[card] == 0; }
+    public static boolean isFaceUp(int card) { return (card & FACE_UP) != 0; }
+    
+    /** The card identity without the face-up bit (0..51). */
+    public static int id(int card) { return card & 0x3F; }
+    public static int faceUp(int card) { return card | FACE_UP; }
+    public static int faceDown(int card) { return card & ~FACE_UP; }
+    
+    /** True if {@code card} can be placed on the face-up tableau card {@code top}. */
+    public static boolean fitsOn(int card, int top) {
+        return KEY[card] == ACCEPTS[top];
+    }
+    
+    public static String rankString(int card) {
+        switch (rank(card)) {
+            case 1: return "A";
+            case 11: return "J";
+            case 12: return "Q";
+            case 13: return "K";
+            default: return String.valueOf(rank(card));
+        }
+    }
+    
+    public static String suitString(int card) {
+        return SUITS[suit(card)];
+    }
+    
+    public static String toString(int card) {
+        return card < 0 ? "-" : rankString(card) + suitString(card);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.solitaire;
+
+/**
+ * Decides whether a position can still make progress, with verdicts cached by position hash.
+ * - Progress is a foundation move, a move that turns a tableau card, or playing a waste card;
+ *   anything else (draws, redeals, runs moved between face-up cards) only shuffles the same cards
+ * - Every waste card that stock cycling can bring up is a talon play, read off the engine's
+ *   talon table, so only tableau rearrangements are searched before giving up
+ * - A search that outgrows its position budget counts as "can progress", so a game is never
+ *   ended on a guess
+ */
+final class DeadEnds {
+    private static final int MAX_POSITIONS = 4096;
+    private static final long TABLE_BYTES = 128 << 10;
+    private static final int CACHE_SIZE = 1024; // direct-mapped by hash
+    
+    private final KlondikeEngine scratch = new KlondikeEngine();
+    private final TranspositionTable seen = new TranspositionTable(TABLE_BYTES);
+    private final byte[] position = new byte[KlondikeEngine.PACKED_SIZE];
+    private final int[][] moves = new int[Solver.MAX_DEPTH][];
+    private final long[] cacheKeys = new long[CACHE_SIZE];
+    private final byte[] cacheVerdicts = new byte[CACHE_SIZE]; // 0 empty, 1 can progress, 2 dead end
+    private int positions;
+    
+    /** True if some sequence of moves from {@code engine} leads to progress. */
+    boolean canProgress(KlondikeEngine engine) {
+        long hash = engine.hash();
+        int slot = (int) hash & (CACHE_SIZE - 1);
+        if (cacheVerdicts[slot] != 0 && cacheKeys[slot] == hash) {
+            return cacheVerdicts[slot] == 1;
+        }
+        
+        engine.pack(position);
+        scratch.unpack(position);
+        scratch.setDrawCount(engine.getDrawCount());
+        seen.clear();
+        positions = 0;
+        boolean progress = search(0);
+        cacheKeys[slot] = hash;
+        cacheVerdicts[slot] = (byte) (progress ? 1 : 2);
+        return progress;
+    }
+    
+    private boolean search(int depth) {
+        if (!seen.claim(scratch.hash(), depth)) {
+            return false; // Explored already
+        }
+        if (++positions > MAX_POSITIONS || depth == Solver.MAX_DEPTH) {
+            return true;
+        }
+        int[] buffer = moves[depth];
+        if (buffer == null) {
+            buffer = moves[depth] = new int[KlondikeEngine.MAX_MOVES];
+        }
+        int count = scratch.generateMoves(buffer, true);
+        for (int i = 0; i < count; i++) {
+            if (isProgress(buffer[i])) {
+                return true;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int move = buffer[i];
+            scratch.doMove(move);
+            boolean progress = search(depth + 1);
+            scratch.undoMove(move);
+            if (progress) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static boolean isProgress(int move) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        return KlondikeEngine.isFoundation(to) || Moves.flips(move) || Moves.isTalon(move)
+            || from == KlondikeEngine.WASTE && to != KlondikeEngine.STOCK;
+    }
+}
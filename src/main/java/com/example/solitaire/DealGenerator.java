@@ -0,0 +1,208 @@
+package com.example.solitaire;
+
+import java.util.SplittableRandom;
+
+/**
+ * Builds deals that are winnable by construction, with no solver.
+ * - Deals a layout, then plays it out to the finish. Whenever a flip or a draw turns up a
+ *   card nobody has seen yet, the generator first picks which unseen card that is, by
+ *   exchanging it with another unseen card in the deal (KlondikeEngine.swapHidden)
+ * - The cards picked never change a move already played, so the finished line is a win
+ *   for the final layout; read backwards it un-plays that layout from the solved state
+ * - Difficulty biases the picks: 0 turns up cards that go straight to a foundation when it
+ *   can, 1 cards that cannot be played yet
+ * - Play follows Solver's move order with some randomness and never revisits a position;
+ *   an attempt that stalls is dropped and the next one starts from a fresh layout
+ */
+public class DealGenerator {
+    private static final int MAX_PLIES = 1000;
+    private static final int MAX_ATTEMPTS = 10_000;
+    private static final double GREEDY = 0.8;      // chance of playing Solver's first choice
+    private static final long TABLE_BYTES = 64 << 10; // positions of one attempt
+    
+    private final KlondikeEngine engine = new KlondikeEngine();
+    private final Deck deck = new Deck();
+    private final TranspositionTable seen = new TranspositionTable(TABLE_BYTES);
+    private final byte[] layout = new byte[Cards.DECK_SIZE];
+    private final int[] moves = new int[KlondikeEngine.MAX_MOVES];
+    private final int[] line = new int[MAX_PLIES];
+    private final int[] unseen = new int[Cards.DECK_SIZE]; // pile << 8 | index
+    private final int[] playability = new int[Cards.DECK_SIZE];
+    private final int[] ends = new int[3]; // where each playability group of unseen ends
+    private int length;
+    private boolean redealt; // stock cards have all been seen once the waste is turned over
+    
+    public DealGenerator(int drawCount) {
+        engine.setDrawCount(drawCount);
+    }
+    
+    /**
+     * Write a winnable layout for {@code seed} to {@code out} (52 card codes in deck order, for
+     * Deck.load). The same seed and difficulty always give the same deal.
+     */
+    public void generate(long seed, double difficulty, byte[] out) {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (playOut(random, difficulty)) {
+                System.arraycopy(layout, 0, out, 0, Cards.DECK_SIZE);
+                return;
+            }
+        }
+        throw new IllegalStateException("No winnable deal after " + MAX_ATTEMPTS + " attempts");
+    }
+    
+    /** The winning line of the last deal generated, as Moves records. */
+    public int[] solution() {
+        int[] solution = new int[length];
+        System.arraycopy(line, 0, solution, 0, length);
+        return solution;
+    }
+    
+    private boolean playOut(SplittableRandom random, double difficulty) {
+        Deck.layout(random.nextLong(), layout, 0);
+        deck.load(layout);
+        engine.newGame(deck);
+        seen.clear();
+        seen.claim(engine.hash(), 0);
+        redealt = false;
+        for (length = 0; length < MAX_PLIES; length++) {
+            if (engine.isWon()) {
+                return true;
+            }
+            int count = Solver.order(engine, moves, engine.generateMoves(moves));
+            if (count == 0) {
+                return false;
+            }
+            int first = random.nextDouble() < GREEDY ? 0 : random.nextInt(count);
+            int played = Moves.NONE;
+            for (int i = 0; i < count && played == Moves.NONE; i++) {
+                int move = moves[(first + i) % count];
+                reveal(move, random, difficulty);
+                engine.doMove(move);
+                if (seen.claim(engine.hash(), length + 1)) {
+                    played = move;
+                } else {
+                    engine.undoMove(move);
+                }
+            }
+            if (played == Moves.NONE) {
+                return false; // Every move leads back to a position already played
+            }
+            line[length] = played;
+            if (Moves.from(played) == KlondikeEngine.WASTE && Moves.to(played) == KlondikeEngine.STOCK) {
+                redealt = true;
+            }
+        }
+        return false;
+    }
+    
+    /** Pick the unseen cards that {@code move} is about to turn up. */
+    private void reveal(int move, SplittableRandom random, double difficulty) {
+        int from = Moves.from(move);
+        if (Moves.flips(move)) {
+            pick(from, engine.size(from) - Moves.count(move) - 1, random, difficulty);
+        } else if (from == KlondikeEngine.STOCK && !redealt) {
+            // The deepest card drawn lands on top of the waste, so it is picked last
+            int size = engine.size(KlondikeEngine.STOCK);
+            for (int i = 1; i <= Moves.count(move); i++) {
+                pick(KlondikeEngine.STOCK, size - i, random, difficulty);
+            }
+        }
+    }
+    
+    /** Choose which unseen card sits at (pile, index), which is itself unseen. */
+    private void pick(int pile, int index, SplittableRandom random, double difficulty) {
+        // Unseen cards: face-down tableau cards, and the stock below (pile, index) until the first redeal
+        int count = 0;
+        for (int column = 0; column < 7; column++) {
+            int tableau = KlondikeEngine.TABLEAU + column;
+            for (int i = 0; i < engine.size(tableau) && !Cards.isFaceUp(engine.cardAt(tableau, i)); i++) {
+                count = add(tableau, i, count);
+            }
+        }
+        if (!redealt) {
+            int end = pile == KlondikeEngine.STOCK ? index + 1 : engine.size(KlondikeEngine.STOCK);
+            for (int i = 0; i < end; i++) {
+                count = add(KlondikeEngine.STOCK, i, count);
+            }
+        }
+        // Sort into how soon each card plays: foundation now, tableau now, not yet
+        for (int i = 0; i < count; i++) {
+            int location = unseen[i];
+            playability[i] = playability(engine.cardAt(location >>> 8, location & 0xFF));
+        }
+        int end = 0;
+        for (int group = 0; group < 3; group++) {
+            for (int i = end; i < count; i++) {
+                if (playability[i] == group) {
+                    swap(unseen, i, end);
+                    swap(playability, i, end);
+                    end++;
+                }
+            }
+            ends[group] = end;
+        }
+        // Easy picks come from the most playable group on hand, hard ones from the least
+        boolean easy = random.nextDouble() >= difficulty;
+        int group = easy ? 0 : 2;
+        while (ends[group] == (group == 0 ? 0 : ends[group - 1])) {
+            group += easy ? 1 : -1;
+        }
+        int from = group == 0 ? 0 : ends[group - 1];
+        int chosen = unseen[from + random.nextInt(ends[group] - from)];
+        int chosenPile = chosen >>> 8;
+        int chosenIndex = chosen & 0xFF;
+        if (chosenPile != pile || chosenIndex != index) {
+            engine.swapHidden(pile, index, chosenPile, chosenIndex);
+            swapLayout(dealOrder(pile, index), dealOrder(chosenPile, chosenIndex));
+        }
+    }
+    
+    private static void swap(int[] array, int i, int j) {
+        int t = array[i];
+        array[i] = array[j];
+        array[j] = t;
+    }
+    
+    private int add(int pile, int index, int count) {
+        unseen[count] = pile << 8 | index;
+        return count + 1;
+    }
+    
+    /** 0 if {@code card} could go to its foundation the moment it turns up, 1 onto a column, else 2. */
+    private int playability(int card) {
+        int faceUp = Cards.faceUp(card);
+        if (engine.canMoveToFoundation(faceUp)) {
+            return 0;
+        }
+        for (int column = 0; column < 7; column++) {
+            int top = engine.top(KlondikeEngine.TABLEAU + column);
+            // A face-down top is the card being picked for, so nothing can go onto it yet
+            if ((top == Cards.NONE || Cards.isFaceUp(top)) && engine.canMoveToTableau(faceUp, column)) {
+                return 1;
+            }
+        }
+        return 2;
+    }
+    
+    /**
+     * Position in the deal of an unseen card: face-down cards never move and the stock below
+     * the last draw is as dealt, so newGame's dealing loop maps it straight back.
+     */
+    private static int dealOrder(int pile, int index) {
+        if (pile == KlondikeEngine.STOCK) {
+            return 28 + index;
+        }
+        int column = pile - KlondikeEngine.TABLEAU;
+        return column * (column + 1) / 2 + index;
+    }
+    
+    /** Swap two cards of the layout by deal order (Deck deals from the end of its array). */
+    private void swapLayout(int a, int b) {
+        int i = Cards.DECK_SIZE - 1 - a;
+        int j = Cards.DECK_SIZE - 1 - b;
+        byte t = layout[i];
+        layout[i] = layout[j];
+        layout[j] = t;
+    }
+}
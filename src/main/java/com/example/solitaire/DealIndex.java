@@ -0,0 +1,221 @@
+package com.example.solitaire;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Solved-deal index: what the solver found for every deal number in a range.
+ * - One fixed 16-byte record per deal at (seed - firstSeed), so a lookup is an address
+ *   computation into a read-only memory map: no parsing and next to no heap
+ * - The map is split into 1 GB segments, so a file can hold hundreds of millions of deals
+ * - Solutions live in a companion file (index path + ".moves") as Moves records; a deal's
+ *   record holds the byte offset of its solution there
+ *
+ * File layout, little-endian:
+ * - Header (32 bytes): magic "KLDX", version, draw count, unused, first seed, deal count
+ * - Record (16 bytes): outcome (0 not solved yet, else Solver.Outcome ordinal + 1), unused,
+ *   solution length (short), difficulty (int, solver nodes needed, saturated), solution offset (long)
+ */
+public class DealIndex implements Closeable {
+    private static final int MAGIC = 0x58444C4B; // "KLDX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int RECORD_BYTES = 16;
+    private static final int SEGMENT_SHIFT = 26; // records per map segment: 64M, i.e. 1 GB
+    
+    private final FileChannel channel;
+    private final FileChannel moves;
+    private final MappedByteBuffer[] segments;
+    private final int drawCount;
+    private final long firstSeed;
+    private final long count;
+    
+    private DealIndex(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException(path + " is not a deal index");
+            }
+            drawCount = header.getInt(8);
+            firstSeed = header.getLong(16);
+            count = header.getLong(24);
+            if (channel.size() < HEADER_BYTES + count * RECORD_BYTES) {
+                throw new IOException(path + " is truncated");
+            }
+            
+            segments = new MappedByteBuffer[(int) ((count + (1L << SEGMENT_SHIFT) - 1) >>> SEGMENT_SHIFT)];
+            for (int s = 0; s < segments.length; s++) {
+                long first = (long) s << SEGMENT_SHIFT;
+                long records = Math.min(count - first, 1L << SEGMENT_SHIFT);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * RECORD_BYTES, records * RECORD_BYTES);
+                segments[s].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            moves = FileChannel.open(movesPath(path), StandardOpenOption.READ);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /** Open an index for reading. */
+    public static DealIndex open(Path path) throws IOException {
+        return new DealIndex(path);
+    }
+    
+    private static Path movesPath(Path path) {
+        return Paths.get(path + ".moves");
+    }
+    
+    public int getDrawCount() {
+        return drawCount;
+    }
+    
+    public long firstSeed() {
+        return firstSeed;
+    }
+    
+    public long lastSeed() {
+        return firstSeed + count - 1;
+    }
+    
+    /** Solver outcome for {@code seed}, or null if the index has none. */
+    public Solver.Outcome outcome(long seed) {
+        int offset = recordOffset(seed);
+        int code = offset < 0 ? 0 : segment(seed).get(offset);
+        return code == 0 ? null : Solver.Outcome.values()[code - 1];
+    }
+    
+    /** Solver nodes it took to decide {@code seed}: the deal's difficulty. 0 if not indexed. */
+    public int difficulty(long seed) {
+        int offset = recordOffset(seed);
+        return offset < 0 ? 0 : segment(seed).getInt(offset + 4);
+    }
+    
+    /** Winning line for {@code seed} from the deal, or null unless the index has it SOLVED. */
+    public int[] solution(long seed) throws IOException {
+        if (outcome(seed) != Solver.Outcome.SOLVED) {
+            return null;
+        }
+        MappedByteBuffer segment = segment(seed);
+        int offset = recordOffset(seed);
+        int length = segment.getShort(offset + 2);
+        ByteBuffer bytes = ByteBuffer.allocate(length * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long position = segment.getLong(offset + 8);
+        while (bytes.hasRemaining()) {
+            if (moves.read(bytes, position + bytes.position()) < 0) {
+                throw new IOException("Solution for deal " + seed + " is truncated");
+            }
+        }
+        int[] solution = new int[length];
+        bytes.flip();
+        bytes.asIntBuffer().get(solution);
+        return solution;
+    }
+    
+    /** Byte offset of the record for {@code seed} in its segment, or -1 if out of range. */
+    private int recordOffset(long seed) {
+        long index = seed - firstSeed;
+        if (index < 0 || index >= count) {
+            return -1;
+        }
+        return (int) (index & ((1L << SEGMENT_SHIFT) - 1)) * RECORD_BYTES;
+    }
+    
+    private MappedByteBuffer segment(long seed) {
+        return segments[(int) ((seed - firstSeed) >>> SEGMENT_SHIFT)];
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            moves.close();
+        } finally {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Writes results into an index, creating it sized for the whole range if it is missing.
+     * - Records go to their fixed slots with positional writes, so threads and processes
+     *   solving different deals can share one index
+     * - Solutions are appended to the moves file under an exclusive file lock
+     * - Rewriting a deal replaces its record; its old solution is left unreferenced
+     */
+    public static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final FileChannel moves;
+        private final long firstSeed;
+        private final long count;
+        
+        public Writer(Path path, int drawCount, long firstSeed, long lastSeed) throws IOException {
+            this.firstSeed = firstSeed;
+            this.count = lastSeed - firstSeed + 1;
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, drawCount).putLong(16, firstSeed).putLong(24, count);
+                ByteBuffer existing = ByteBuffer.allocate(HEADER_BYTES);
+                if (channel.read(existing, 0) <= 0) {
+                    // New index: a sparse file of empty records. Processes starting together write the same header.
+                    channel.write(header, 0);
+                    channel.write(ByteBuffer.allocate(1), HEADER_BYTES + count * RECORD_BYTES - 1);
+                } else if (!existing.flip().equals(header)) {
+                    throw new IOException(path + " indexes a different deal range or draw count");
+                }
+                moves = FileChannel.open(movesPath(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+        
+        /** Record the result for deal {@code seed}. */
+        public void put(long seed, Solver.Result result) throws IOException {
+            long index = seed - firstSeed;
+            if (index < 0 || index >= count) {
+                throw new IllegalArgumentException("Deal " + seed + " is outside the index");
+            }
+            long solutionOffset = 0;
+            if (result.solution.length > 0) {
+                ByteBuffer line = ByteBuffer.allocate(result.solution.length * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                line.asIntBuffer().put(result.solution);
+                synchronized (moves) {
+                    FileLock lock = moves.lock();
+                    try {
+                        solutionOffset = moves.size();
+                        while (line.hasRemaining()) {
+                            moves.write(line, solutionOffset + line.position());
+                        }
+                    } finally {
+                        lock.release();
+                    }
+                }
+            }
+            ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            record.put(0, (byte) (result.outcome.ordinal() + 1))
+                .putShort(2, (short) result.solution.length)
+                .putInt(4, (int) Math.min(result.nodes, Integer.MAX_VALUE))
+                .putLong(8, solutionOffset);
+            channel.write(record, HEADER_BYTES + index * RECORD_BYTES);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                moves.close();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.solitaire;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Standard 52-card deck used to deal a new game.
+ * Cards are Cards codes in a reusable byte array, so reshuffling allocates nothing.
+ *
+ * A seeded deal is fixed by this class alone, never by the JDK's random classes, so a deal
+ * number gives the same layout on every version and every machine:
+ * - Start from the 52 codes in order, 0..51
+ * - For i = 51 down to 1: advance a SplitMix64 generator seeded with the deal number, take
+ *   the high 32 bits of its 64-bit output as x, and swap card i with card j = (x * (i + 1)) >>> 32
+ * - The SplitMix64 outputs are those of SplittableRandom(seed).nextLong() today, but the swap
+ *   index is not what SplittableRandom.nextInt(i + 1) returns, so a shuffle built on the JDK
+ *   class gives different deals; the steps above are the definition
+ * - Cards are dealt from index 51 down: the seven columns first, then the stock
+ */
+public class Deck {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    
+    private final byte[] cards = new byte[Cards.DECK_SIZE];
+    private int remaining;
+    
+    public Deck() {
+        reset();
+    }
+    
+    /** A random deal number for a new game. Non-negative, so it reads well as "deal #". */
+    public static long randomSeed() {
+        return ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+    }
+    
+    /** Put all 52 cards back in suit order. */
+    public void reset() {
+        for (int i = 0; i < Cards.DECK_SIZE; i++) {
+            cards[i] = (byte) i;
+        }
+        remaining = Cards.DECK_SIZE;
+    }
+    
+    /** Gather all 52 cards into the layout of deal number {@code seed}. */
+    public void shuffle(long seed) {
+        layout(seed, cards, 0);
+        remaining = Cards.DECK_SIZE;
+    }
+    
+    /** Gather all 52 cards into {@code layout}, 52 card codes in deck order as written by layout(). */
+    public void load(byte[] layout) {
+        System.arraycopy(layout, 0, cards, 0, Cards.DECK_SIZE);
+        remaining = Cards.DECK_SIZE;
+    }
+    
+    /** Write the 52 card codes of deal number {@code seed} to {@code out} from {@code offset}, in deck order. */
+    public static void layout(long seed, byte[] out, int offset) {
+        for (int i = 0; i < Cards.DECK_SIZE; i++) {
+            out[offset + i] = (byte) i;
+        }
+        long state = seed;
+        for (int i = Cards.DECK_SIZE - 1; i > 0; i--) {
+            state += GOLDEN_GAMMA;
+            long z = state;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            z ^= z >>> 31;
+            int j = offset + (int) (((z >>> 32) * (i + 1)) >>> 32);
+            byte t = out[offset + i];
+            out[offset + i] = out[j];
+            out[j] = t;
+        }
+    }
+    
+    /**
+     * Bulk generation for simulations: the layouts of deals firstSeed, firstSeed + 1, ...
+     * packed back to back, 52 bytes each, until {@code out} is full.
+     */
+    public static void layouts(long firstSeed, byte[] out) {
+        long seed = firstSeed;
+        for (int offset = 0; offset + Cards.DECK_SIZE <= out.length; offset += Cards.DECK_SIZE) {
+            layout(seed++, out, offset);
+        }
+    }
+    
+    /** Deal the next card code, or Cards.NONE if the deck is empty. */
+    public int deal() {
+        return remaining == 0 ? Cards.NONE : cards[--remaining];
+    }
+    
+    public boolean isEmpty() {
+        return remaining == 0;
+    }
+}
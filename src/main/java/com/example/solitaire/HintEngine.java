@@ -0,0 +1,105 @@
+package com.example.solitaire;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Ranks every legal move of a position by searching the position after it.
+ * - Each move gets a small Solver search: moves that still win come first, ordered by the
+ *   length of the winning line the search found (the first found, not the shortest, so this
+ *   order is only a rough guide), then undecided moves in Solver's static order, then losing moves
+ * - The whole ranking is time-boxed: every move's search stops at one deadline for the
+ *   ranking, and moves left when time runs out count as undecided
+ * - Work runs on one background virtual thread, one ranking at a time; cancelling the Future
+ *   interrupts the search, which stops within a few thousand nodes, and drops it if queued
+ */
+public class HintEngine {
+    /** Legal moves of one position, best first. */
+    public static final class Hints {
+        public final long hash;                // position the hints are for
+        public final int[] moves;              // Moves records
+        public final Solver.Outcome[] outcomes; // what searching after each move found
+        
+        Hints(long hash, int[] moves, Solver.Outcome[] outcomes) {
+            this.hash = hash;
+            this.moves = moves;
+            this.outcomes = outcomes;
+        }
+    }
+    
+    private final long maxMillis;
+    private final Solver solver; // used on the executor thread only
+    private final ExecutorService executor =
+        Executors.newSingleThreadExecutor(Thread.ofVirtual().name("solitaire-hints").factory());
+    
+    /** Rankings take about {@code maxMillis} at most, searching each move for up to {@code nodesPerMove} nodes. */
+    public HintEngine(long maxMillis, long nodesPerMove) {
+        this.maxMillis = maxMillis;
+        this.solver = new Solver(nodesPerMove, Long.MAX_VALUE); // time comes from each ranking's deadline
+    }
+    
+    /**
+     * Start ranking the moves of {@code position}, which is copied first. {@code done} gets the
+     * hints on the background thread, unless the returned Future is cancelled first.
+     */
+    public Future<?> analyse(KlondikeEngine position, Consumer<Hints> done) {
+        KlondikeEngine copy = position.copy();
+        return executor.submit(() -> {
+            Hints hints = rank(copy);
+            if (!Thread.currentThread().isInterrupted()) {
+                done.accept(hints);
+            }
+        });
+    }
+    
+    private Hints rank(KlondikeEngine position) {
+        long deadline = System.nanoTime() + maxMillis * 1_000_000;
+        int[] moves = new int[KlondikeEngine.MAX_MOVES];
+        int count = position.generateMoves(moves, true);
+        Solver.Outcome[] outcomes = new Solver.Outcome[count];
+        long[] keys = new long[count];
+        for (int i = 0; i < count && !Thread.currentThread().isInterrupted(); i++) {
+            int move = moves[i];
+            Solver.Outcome outcome = Solver.Outcome.UNKNOWN;
+            int length = 0;
+            if (System.nanoTime() < deadline) {
+                position.doMove(move);
+                if (position.isWon()) {
+                    outcome = Solver.Outcome.SOLVED;
+                } else {
+                    Solver.Result result = solver.solve(position, deadline);
+                    outcome = result.outcome;
+                    length = result.solution.length;
+                }
+                position.undoMove(move);
+            }
+            outcomes[i] = outcome;
+            // Wins first, then undecided moves, then losing ones; within a class by the length of
+            // the line found or by static priority (best sorts lowest)
+            long rank = outcome == Solver.Outcome.SOLVED ? 0 : outcome == Solver.Outcome.UNKNOWN ? 1 : 2;
+            long order = outcome == Solver.Outcome.SOLVED ? length : 4 - Solver.priority(position, move);
+            keys[i] = rank << 32 | order;
+        }
+        
+        // Insertion sort by key; lists are short
+        for (int i = 1; i < count; i++) {
+            long key = keys[i];
+            int move = moves[i];
+            Solver.Outcome outcome = outcomes[i];
+            int j = i;
+            for (; j > 0 && keys[j - 1] > key; j--) {
+                keys[j] = keys[j - 1];
+                moves[j] = moves[j - 1];
+                outcomes[j] = outcomes[j - 1];
+            }
+            keys[j] = key;
+            moves[j] = move;
+            outcomes[j] = outcome;
+        }
+        int[] ranked = new int[count];
+        System.arraycopy(moves, 0, ranked, 0, count);
+        return new Hints(position.hash(), ranked, outcomes);
+    }
+}
@@ -0,0 +1,828 @@
+package com.example.solitaire;
+
+import java.util.Arrays;
+
+/**
+ * Klondike rules engine with no Swing dependencies.
+ * - Owns the stock, waste, foundation and tableau piles and the score
+ * - Implements move validation, stock drawing, win/game-over checks and undo/redo
+ * - Solitaire is a thin view over one instance; simulations can drive it headless
+ *
+ * Cards are Cards codes. Stock, waste and tableau piles are CardPiles; the
+ * foundations are four rank nibbles (one per suit) packed into a single int.
+ * A 52-entry location table tracks where every card is. Undo and redo walk an
+ * UndoTree of Moves records that are reversed or replayed in place; abandoned
+ * lines of play stay in the tree and can be returned to. Each pile keeps a
+ * Zobrist hash of its cards, so the 64-bit position hash is a handful of XORs.
+ * Once anything asks, legal card moves are counted by a MoveTracker that only
+ * recounts the piles each move touches.
+ */
+public class KlondikeEngine {
+    // Pile identifiers shared with views and move descriptions
+    public static final int STOCK = 0;
+    public static final int WASTE = 1;
+    public static final int FOUNDATION = 2; // 4 foundations, one per suit: 2..5
+    public static final int TABLEAU = 6;    // 7 tableau columns: 6..12
+    public static final int PILE_COUNT = 13;
+    
+    // Rules
+    public static final int DRAW_COUNT = 3;       // cards drawn per stock click (default)
+    public static final int VISIBLE_WASTE = 3;    // waste cards that may be played in Draw 3
+    
+    // Scoring
+    public static final int SCORE_FOUNDATION = 10;
+    public static final int SCORE_FLIP = 5;
+    public static final int SCORE_UNDO = -15;
+    
+    // Largest possible pile: the 24 undealt cards in stock or waste
+    private static final int MAX_PILE = 24;
+    // Upper bound on the legal moves in any position, talon plays included; see generateMoves
+    public static final int MAX_MOVES = 512;
+    // Size of a packed position: pile sizes, foundation nibbles and the remaining card codes
+    public static final int PACKED_SIZE = 9 + 2 + Cards.DECK_SIZE;
+    
+    // Game state: piles indexed by pile id (null for foundations)
+    private final CardPile[] piles = new CardPile[PILE_COUNT];
+    private final short[] locations = new short[Cards.DECK_SIZE]; // card id -> pile << 8 | index
+    private int foundations = 0; // rank of suit s in bits 4s..4s+3
+    private int score = 0;
+    private int drawCount = DRAW_COUNT;
+    
+    // Undo system
+    private final UndoTree history = new UndoTree();
+    private final Deck deck = new Deck();
+    private long seed;
+    private boolean seeded; // false for a game dealt from a caller's Deck
+    
+    // Legal card moves, recounted only for the piles each move touches. Created by the first
+    // query, so engines that only search never pay for the upkeep.
+    private MoveTracker tracker;
+    private DeadEnds deadEnds; // created on first use, as it holds an engine of its own
+    private final TalonTable talon = new TalonTable(this);
+    
+    public KlondikeEngine() {
+        for (int i = 0; i < PILE_COUNT; i++) {
+            if (!isFoundation(i)) {
+                piles[i] = new CardPile(i, MAX_PILE, locations);
+            }
+        }
+    }
+    
+    /** Deal a new game with a random deal number. */
+    public void newGame() {
+        newGame(Deck.randomSeed());
+    }
+    
+    /** Deal game number {@code seed}; the same number always deals the same layout. */
+    public void newGame(long seed) {
+        deck.shuffle(seed);
+        deal(deck);
+        this.seed = seed;
+        seeded = true;
+    }
+    
+    /** Deal a new game from the given deck. The game has no deal number. */
+    public void newGame(Deck deck) {
+        deal(deck);
+        seeded = false;
+    }
+    
+    /** Deal number of the current game; meaningful only if hasSeed(). */
+    public long getSeed() {
+        return seed;
+    }
+    
+    /** True if the current game was dealt by number rather than from a caller's Deck. */
+    public boolean hasSeed() {
+        return seeded;
+    }
+    
+    private void deal(Deck deck) {
+        for (CardPile pile : piles) {
+            if (pile != null) {
+                pile.clear();
+            }
+        }
+        foundations = 0;
+        
+        // Deal tableau (1 face-up on first pile, 2 on second with 1 face-up, etc.)
+        for (int i = 0; i < 7; i++) {
+            for (int j = 0; j <= i; j++) {
+                int card = deck.deal();
+                piles[TABLEAU + i].push(j == i ? Cards.faceUp(card) : card); // Top card face up, others face down
+            }
+        }
+        
+        // Remaining cards go to stock
+        while (!deck.isEmpty()) {
+            piles[STOCK].push(deck.deal());
+        }
+        
+        score = 0;
+        history.reset(piles, foundations, score, hash());
+        if (tracker != null) {
+            tracker.reset();
+        }
+    }
+    
+    // Pile queries
+    
+    public int size(int pile) {
+        return isFoundation(pile) ? foundationRank(pile - FOUNDATION) : piles[pile].size();
+    }
+    
+    public boolean isEmpty(int pile) {
+        return size(pile) == 0;
+    }
+    
+    /** Card code at a pile position (0 = bottom). */
+    public int cardAt(int pile, int index) {
+        if (isFoundation(pile)) {
+            return Cards.faceUp(Cards.of(pile - FOUNDATION, index + 1));
+        }
+        return piles[pile].get(index);
+    }
+    
+    /** Top card of a pile, or Cards.NONE if the pile is empty. */
+    public int top(int pile) {
+        int size = size(pile);
+        return size == 0 ? Cards.NONE : cardAt(pile, size - 1);
+    }
+    
+    /** Index of a card within a pile, or -1 if it is not there. */
+    public int indexOf(int pile, int card) {
+        return pileOf(card) == pile ? locations[Cards.id(card)] & 0xFF : -1;
+    }
+    
+    /** The pile currently holding a card. */
+    public int pileOf(int card) {
+        return locations[Cards.id(card)] >> 8;
+    }
+    
+    /** Rank on top of a suit's foundation (0 when empty). */
+    public int foundationRank(int suit) {
+        return (foundations >>> (suit << 2)) & 0xF;
+    }
+    
+    /**
+     * 64-bit Zobrist hash of the position: tableau, foundations, stock and waste order,
+     * and which cards are face up. The score and move history are not included.
+     */
+    public long hash() {
+        long hash = Zobrist.foundations(foundations);
+        for (CardPile pile : piles) {
+            if (pile != null) {
+                hash ^= pile.hash();
+            }
+        }
+        return hash;
+    }
+    
+    /**
+     * Hash shared by positions that solve alike: the same up to the order of the tableau columns
+     * and to exchanging the two black suits or the two red suits. For transposition tables;
+     * hash() is the exact one.
+     * - Each pile keeps a hash per suit from suit-free keys; combining them with each suit's
+     *   key rotated by the suit it is exchanged for gives the exchanged position's hash
+     * - The exchange is picked by comparing signatures of where each suit's cards are, which
+     *   do not name the suit, so every equivalent position picks the same lineup
+     * - Column hashes are mixed and added, which does not depend on the order of the columns
+     */
+    public long canonicalHash() {
+        // Signatures: where each suit's cards are, summed over the piles without naming the suit
+        long spades = 0, hearts = 0, diamonds = 0, clubs = 0;
+        for (int pile = 0; pile < PILE_COUNT; pile++) {
+            CardPile cards = piles[pile];
+            if (cards != null) {
+                spades += cards.suitHash(0);
+                hearts += cards.suitHash(1);
+                diamonds += cards.suitHash(2);
+                clubs += cards.suitHash(3);
+            }
+        }
+        spades += foundationRank(0);
+        hearts += foundationRank(1);
+        diamonds += foundationRank(2);
+        clubs += foundationRank(3);
+        int exchange = (spades > clubs ? 1 : 0) | (hearts > diamonds ? 2 : 0);
+        int exchanged = 0;
+        for (int suit = 0; suit < 4; suit++) {
+            exchanged |= foundationRank(suit) << (exchangeSuit(suit, exchange) << 2);
+        }
+        long hash = Zobrist.foundations(exchanged) ^ exchangedHash(piles[STOCK], exchange) ^ exchangedHash(piles[WASTE], exchange);
+        for (int pile = TABLEAU; pile < TABLEAU + 7; pile++) {
+            hash += Zobrist.mix(exchangedHash(piles[pile], exchange));
+        }
+        return hash;
+    }
+    
+    private static long exchangedHash(CardPile pile, int exchange) {
+        long hash = 0;
+        for (int suit = 0; suit < 4; suit++) {
+            hash ^= Long.rotateLeft(pile.suitHash(suit), exchangeSuit(suit, exchange) << 4);
+        }
+        return hash;
+    }
+    
+    /** Suit {@code suit} after exchange 0-3: bit 0 swaps spades and clubs, bit 1 hearts and diamonds. */
+    private static int exchangeSuit(int suit, int exchange) {
+        boolean black = suit == 0 || suit == 3;
+        return (exchange & (black ? 1 : 2)) != 0 ? 3 - suit : suit;
+    }
+    
+    public int getScore() {
+        return score;
+    }
+    
+    /** Add bonus points (e.g. the time bonus for a win). */
+    public void addScore(int points) {
+        score += points;
+    }
+    
+    public int getDrawCount() {
+        return drawCount;
+    }
+    
+    /** Draw 1 or Draw 3; takes effect from the next stock click. */
+    public void setDrawCount(int drawCount) {
+        this.drawCount = drawCount;
+        if (tracker != null) {
+            tracker.touched(WASTE); // more or fewer waste cards are playable
+        }
+    }
+    
+    /** Waste cards that may be played: the top card in Draw 1, the top three in Draw 3. */
+    public int visibleWaste() {
+        return drawCount == 1 ? 1 : VISIBLE_WASTE;
+    }
+    
+    public static boolean isFoundation(int pile) {
+        return pile >= FOUNDATION && pile < FOUNDATION + 4;
+    }
+    
+    public static boolean isTableau(int pile) {
+        return pile >= TABLEAU && pile < TABLEAU + 7;
+    }
+    
+    /** The foundation pile a card plays to. */
+    public static int foundationFor(int card) {
+        return FOUNDATION + Cards.suit(card);
+    }
+    
+    // Rules
+    
+    public boolean canMoveToFoundation(int card) {
+        return foundationRank(Cards.suit(card)) == Cards.rank(card) - 1;
+    }
+    
+    /**
+     * Check whether a run whose bottom card is {@code card} can be placed on a tableau column.
+     * Face-up tableau cards always form a valid alternating run, so only the join is checked.
+     */
+    public boolean canMoveToTableau(int card, int tableauIndex) {
+        CardPile tableau = piles[TABLEAU + tableauIndex];
+        // Allow any card to be placed on empty tableau (not just Kings)
+        return tableau.isEmpty() || Cards.fitsOn(card, tableau.top());
+    }
+    
+    /**
+     * Check whether the cards from {@code index} to the top of {@code from} may move to {@code to}.
+     * From the waste only a single card is moved, and it may be any of the visible cards.
+     */
+    public boolean canMove(int from, int index, int to) {
+        if (from == to || index < 0 || index >= size(from)) return false;
+        int card = cardAt(from, index);
+        
+        if (from == WASTE) {
+            if (index < piles[WASTE].size() - visibleWaste()) return false;
+        } else if (!isTableau(from) || !Cards.isFaceUp(card)) {
+            return false;
+        }
+        
+        if (isFoundation(to)) {
+            // Only allow single cards to foundation
+            return movingCount(from, index) == 1 && to == foundationFor(card) && canMoveToFoundation(card);
+        } else if (isTableau(to)) {
+            return canMoveToTableau(card, to - TABLEAU);
+        }
+        return false;
+    }
+    
+    /** Number of cards a move from {@code index} of {@code from} would carry. */
+    public int movingCount(int from, int index) {
+        return from == WASTE ? 1 : size(from) - index;
+    }
+    
+    /** Validate and perform a move. Returns false (and changes nothing) if the move is illegal. */
+    public boolean move(int from, int index, int to) {
+        if (!canMove(from, index, to)) return false;
+        record(touched(play(from, index, to))); // For undo
+        return true;
+    }
+    
+    /** Perform an already validated move and return its Moves record. */
+    private int play(int from, int index, int to) {
+        CardPile source = piles[from];
+        int count = movingCount(from, index);
+        int depth = from == WASTE ? source.size() - 1 - index : 0;
+        int delta = 0;
+        if (isFoundation(to)) {
+            // Closes the gap when a buried waste card was taken
+            int card = source.removeAt(index);
+            int suit = Cards.suit(card);
+            locations[Cards.id(card)] = (short) (to << 8 | foundationRank(suit));
+            foundations += 1 << (suit << 2);
+            delta += SCORE_FOUNDATION; // Points for moving to foundation
+        } else if (from == WASTE) {
+            piles[to].push(source.removeAt(index));
+        } else {
+            source.moveRunTo(index, piles[to]);
+        }
+        
+        // Flip top card of source if it's face down
+        int size = source.size();
+        boolean flip = size > 0 && isTableau(from) && !Cards.isFaceUp(source.top());
+        if (flip) {
+            source.set(size - 1, Cards.faceUp(source.top()));
+            delta += SCORE_FLIP; // Points for flipping card
+        }
+        score += delta;
+        return Moves.of(from, to, count, depth, flip, delta);
+    }
+    
+    /** Move a card to its suit's foundation. Returns false if it does not fit there. */
+    public boolean moveToFoundation(int from, int index) {
+        return index >= 0 && index < size(from) && move(from, index, foundationFor(cardAt(from, index)));
+    }
+    
+    /**
+     * Draw from the stock, or recycle the waste back to the stock when the stock is empty.
+     * Returns true if the waste was recycled.
+     */
+    public boolean drawFromStock() {
+        boolean recycle = piles[STOCK].isEmpty();
+        record(touched(draw())); // For undo
+        return recycle;
+    }
+    
+    /** Draw or recycle and return the Moves record. */
+    private int draw() {
+        CardPile stock = piles[STOCK];
+        CardPile waste = piles[WASTE];
+        if (stock.isEmpty()) {
+            // Recycle waste pile back to stock
+            int count = waste.size();
+            while (!waste.isEmpty()) {
+                stock.push(Cards.faceDown(waste.pop()));
+            }
+            // No penalty for recycling - players can go through the deck as many times as needed
+            return Moves.of(WASTE, STOCK, count, 0, false, 0);
+        }
+        
+        // Draw 1 or 3 cards (or remaining cards if fewer)
+        int cardsToDraw = Math.min(drawCount, stock.size());
+        for (int i = 0; i < cardsToDraw; i++) {
+            waste.push(Cards.faceUp(stock.pop()));
+        }
+        return Moves.of(STOCK, WASTE, cardsToDraw, 0, false, 0);
+    }
+    
+    public boolean isWon() {
+        return foundations == 0xDDDD; // King (13) on every foundation
+    }
+    
+    /**
+     * True when the game is not won and no progress was found: no foundation move, tableau
+     * flip or waste play can be reached, however the stock is cycled or runs are shuffled
+     * between columns. Conservative rather than exact: a search that outgrows its position or
+     * depth budget counts as progress, so a game is never ended on a guess. Immediate while a
+     * progress move is on the board; otherwise searched and cached by position hash.
+     */
+    public boolean isGameOver() {
+        if (isWon() || tracker().progress() > 0) {
+            return false; // Progress can be made right now
+        }
+        if (deadEnds == null) {
+            deadEnds = new DeadEnds();
+        }
+        return !deadEnds.canProgress(this);
+    }
+    
+    /**
+     * Write every legal move as a Moves record into {@code out} (at least MAX_MOVES long)
+     * and return how many there are. Nothing is allocated.
+     * Order: waste cards, tableau runs (foundation before tableau targets), then the stock draw
+     * or recycle. Flip flags and score deltas are filled in, so the records can be played as-is.
+     */
+    public int generateMoves(int[] out) {
+        return generateMoves(out, false);
+    }
+    
+    /**
+     * Like generateMoves(int[]), but with {@code talonPlays} the stock draw or recycle is replaced
+     * by a talon play (Moves.talon) for every waste card that stock clicks can bring up, fewest
+     * clicks first. Draws only matter for the card they lead to, so searches lose nothing.
+     */
+    public int generateMoves(int[] out, boolean talonPlays) {
+        int count = 0;
+        
+        // Any of the visible waste cards, one at a time
+        CardPile waste = piles[WASTE];
+        int wasteSize = waste.size();
+        for (int index = Math.max(0, wasteSize - visibleWaste()); index < wasteSize; index++) {
+            int card = waste.get(index);
+            int depth = wasteSize - 1 - index;
+            if (canMoveToFoundation(card)) {
+                out[count++] = Moves.of(WASTE, foundationFor(card), 1, depth, false, SCORE_FOUNDATION);
+            }
+            for (int t = 0; t < 7; t++) {
+                if (canMoveToTableau(card, t)) {
+                    out[count++] = Moves.of(WASTE, TABLEAU + t, 1, depth, false, 0);
+                }
+            }
+        }
+        
+        // Tableau runs from each face-up card; only the top card may go to a foundation
+        for (int pile = TABLEAU; pile < TABLEAU + 7; pile++) {
+            CardPile column = piles[pile];
+            int size = column.size();
+            for (int k = size - 1; k >= 0 && Cards.isFaceUp(column.get(k)); k--) {
+                int card = column.get(k);
+                boolean flip = k > 0 && !Cards.isFaceUp(column.get(k - 1));
+                int flipScore = flip ? SCORE_FLIP : 0;
+                if (k == size - 1 && canMoveToFoundation(card)) {
+                    out[count++] = Moves.of(pile, foundationFor(card), 1, 0, flip, SCORE_FOUNDATION + flipScore);
+                }
+                for (int t = 0; t < 7; t++) {
+                    if (TABLEAU + t != pile && canMoveToTableau(card, t)) {
+                        out[count++] = Moves.of(pile, TABLEAU + t, size - k, 0, flip, flipScore);
+                    }
+                }
+            }
+        }
+        
+        CardPile stock = piles[STOCK];
+        if (talonPlays) {
+            return addTalonPlays(out, count);
+        }
+        if (!stock.isEmpty()) {
+            out[count++] = Moves.of(STOCK, WASTE, Math.min(drawCount, stock.size()), 0, false, 0);
+        } else if (wasteSize > 0) {
+            out[count++] = Moves.of(WASTE, STOCK, wasteSize, 0, false, 0);
+        }
+        return count;
+    }
+    
+    private int addTalonPlays(int[] out, int count) {
+        int wasteSize = piles[WASTE].size();
+        for (int i = 0; i < talon.positions(); i++) {
+            int size = talon.position(i);
+            for (int index = Math.max(0, size - visibleWaste()); index < size; index++) {
+                int card = Cards.faceUp(talonCard(index));
+                int depth = size - 1 - index;
+                if (canMoveToFoundation(card)) {
+                    out[count++] = Moves.talon(foundationFor(card), wasteSize, size, depth, SCORE_FOUNDATION);
+                }
+                for (int t = 0; t < 7; t++) {
+                    if (canMoveToTableau(card, t)) {
+                        out[count++] = Moves.talon(TABLEAU + t, wasteSize, size, depth, 0);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+    
+    /** Card at {@code index} of the talon: the waste bottom to top, then the stock top to bottom. */
+    private int talonCard(int index) {
+        int wasteSize = piles[WASTE].size();
+        return index < wasteSize ? piles[WASTE].get(index) : piles[STOCK].get(piles[STOCK].size() - 1 - (index - wasteSize));
+    }
+    
+    /** Play a record produced by generateMoves and add it to the undo history. */
+    public void makeMove(int move) {
+        record(touched(apply(move)));
+    }
+    
+    /** Legal card moves in the position; stock draws and recycles are not counted. */
+    public int cardMoves() {
+        return tracker().total();
+    }
+    
+    /** Legal card moves from pile {@code from} to pile {@code to}; any foundation means all four. */
+    public int cardMoves(int from, int to) {
+        return tracker().between(from, to);
+    }
+    
+    MoveTracker tracker() {
+        if (tracker == null) {
+            tracker = new MoveTracker(this);
+            tracker.reset();
+        }
+        return tracker;
+    }
+    
+    /** Recount the legal moves around the piles a Moves record changed, once anything reads them. */
+    private int touched(int move) {
+        if (tracker != null) {
+            tracker.touched(Moves.from(move));
+            tracker.touched(Moves.to(move));
+            if (Moves.isTalon(move)) {
+                tracker.touched(WASTE);
+            }
+        }
+        return move;
+    }
+    
+    /** True when the stock is empty and every tableau card is face up. */
+    public boolean canAutoComplete() {
+        if (!piles[STOCK].isEmpty()) return false;
+        for (int pile = TABLEAU; pile < TABLEAU + 7; pile++) {
+            // Face-down cards sit at the bottom of a column
+            if (!piles[pile].isEmpty() && !Cards.isFaceUp(piles[pile].get(0))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Play the next available tableau or waste top card to the foundations.
+     * Returns false when no such move exists.
+     */
+    public boolean autoCompleteStep() {
+        int pile = autoCompletePile();
+        return pile >= 0 && moveToFoundation(pile, size(pile) - 1);
+    }
+    
+    /**
+     * Every move autoCompleteStep would play from here until it stops, as Moves records for
+     * makeMove, worked out on a copy. The position is not changed.
+     */
+    public int[] autoCompleteLine() {
+        KlondikeEngine finish = copy();
+        int[] line = new int[Cards.DECK_SIZE];
+        int length = 0;
+        for (int pile = finish.autoCompletePile(); pile >= 0; pile = finish.autoCompletePile()) {
+            int index = finish.size(pile) - 1;
+            line[length++] = finish.play(pile, index, foundationFor(finish.cardAt(pile, index)));
+        }
+        return Arrays.copyOf(line, length);
+    }
+    
+    /** First tableau column, else the waste, whose top card can go to its foundation; -1 if none. */
+    private int autoCompletePile() {
+        for (int pile = TABLEAU; pile < TABLEAU + 7; pile++) {
+            int card = top(pile);
+            if (card != Cards.NONE && Cards.isFaceUp(card) && canMoveToFoundation(card)) {
+                return pile;
+            }
+        }
+        int card = top(WASTE);
+        return card != Cards.NONE && canMoveToFoundation(card) ? WASTE : -1;
+    }
+    
+    /** Describe a Moves record in words, relative to the current position. */
+    public String describe(int move) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        if (Moves.isTalon(move)) {
+            int clicks = talon.clicks(Moves.wasteSize(move));
+            int card = talonCard(Moves.wasteSize(move) - 1 - Moves.depth(move));
+            return "Click the stock " + clicks + (clicks == 1 ? " time" : " times") + ", then move "
+                + Cards.toString(Cards.faceUp(card)) + " from waste to " + pileName(Moves.to(move));
+        }
+        if (from == STOCK) return "Draw from stock";
+        if (to == STOCK) return "Recycle waste";
+        int count = Moves.count(move);
+        int index = from == WASTE ? size(from) - 1 - Moves.depth(move) : size(from) - count;
+        String cards = Cards.toString(cardAt(from, index)) + (count > 1 ? " and " + (count - 1) + " more" : "");
+        return "Move " + cards + " from " + pileName(from) + " to " + pileName(to);
+    }
+    
+    public static String pileName(int pile) {
+        if (pile == STOCK) return "stock";
+        if (pile == WASTE) return "waste";
+        if (isFoundation(pile)) return "foundation";
+        return "column " + (pile - TABLEAU + 1);
+    }
+    
+    // Search
+    
+    /** An independent copy of the current position, without move history. */
+    public KlondikeEngine copy() {
+        byte[] position = new byte[PACKED_SIZE];
+        pack(position);
+        KlondikeEngine copy = new KlondikeEngine();
+        copy.unpack(position);
+        copy.score = score;
+        copy.drawCount = drawCount;
+        copy.history.reset(copy.piles, copy.foundations, copy.score, copy.hash());
+        return copy;
+    }
+    
+    /** Play a Moves record for search, without undo history. */
+    void doMove(int move) {
+        touched(apply(move));
+    }
+    
+    /** Take back a record played with doMove. */
+    void undoMove(int move) {
+        reverse(move);
+        touched(move);
+        score -= Moves.scoreDelta(move);
+    }
+    
+    /**
+     * Exchange two cards no move has revealed yet (face-down tableau cards, or stock cards
+     * before the first redeal). Every move so far is still legal with them exchanged, which
+     * lets a generator choose what a flip or draw turns up. Search use only, like doMove.
+     */
+    void swapHidden(int pileA, int indexA, int pileB, int indexB) {
+        int cardA = piles[pileA].get(indexA);
+        int cardB = piles[pileB].get(indexB);
+        piles[pileA].set(indexA, cardB);
+        piles[pileB].set(indexB, cardA);
+    }
+    
+    // Packed positions
+    
+    /**
+     * Pack the position into {@code out} (at least PACKED_SIZE bytes, one cache line):
+     * nine pile sizes, the foundation nibbles, then the pile contents back to back.
+     */
+    public void pack(byte[] out) {
+        int p = 0;
+        for (int pile = 0; pile < PILE_COUNT; pile++) {
+            if (!isFoundation(pile)) {
+                out[p++] = (byte) piles[pile].size();
+            }
+        }
+        out[p++] = (byte) foundations;
+        out[p++] = (byte) (foundations >>> 8);
+        for (int pile = 0; pile < PILE_COUNT; pile++) {
+            if (!isFoundation(pile)) {
+                p = piles[pile].copyTo(out, p);
+            }
+        }
+    }
+    
+    /** Restore a position written by {@link #pack(byte[])}. */
+    public void unpack(byte[] in) {
+        int p = 9 + 2;
+        int s = 0;
+        for (int pile = 0; pile < PILE_COUNT; pile++) {
+            if (!isFoundation(pile)) {
+                p = piles[pile].copyFrom(in, p, in[s++]);
+            }
+        }
+        foundations = (in[s++] & 0xFF) | (in[s] & 0xFF) << 8;
+        reindex();
+    }
+    
+    /** Rebuild foundation card locations, and any move counts, after loading a whole position. */
+    private void reindex() {
+        for (int suit = 0; suit < 4; suit++) {
+            for (int rank = 1; rank <= foundationRank(suit); rank++) {
+                locations[Cards.of(suit, rank)] = (short) ((FOUNDATION + suit) << 8 | rank - 1);
+            }
+        }
+        if (tracker != null) {
+            tracker.reset();
+        }
+    }
+    
+    // Undo
+    
+    public boolean canUndo() {
+        return history.canUndo();
+    }
+    
+    public boolean canRedo() {
+        return history.canRedo();
+    }
+    
+    public boolean undo() {
+        int move = history.undo();
+        if (move == Moves.NONE) return false;
+        reverse(move);
+        touched(move);
+        score += SCORE_UNDO - Moves.scoreDelta(move); // Small penalty for undo
+        return true;
+    }
+    
+    /** Replay the most recently undone or visited move. The undo penalty is kept. */
+    public boolean redo() {
+        int move = history.redo();
+        if (move == Moves.NONE) return false;
+        touched(apply(move));
+        return true;
+    }
+    
+    /**
+     * Return to another line of play abandoned by undoing and playing differently,
+     * restoring its latest position directly. Returns false if there is none.
+     */
+    public boolean switchLine() {
+        UndoTree.Node node = history.nextLine();
+        if (node == null) return false;
+        for (int pile = 0; pile < PILE_COUNT; pile++) {
+            if (!isFoundation(pile)) {
+                history.restore(node, pile, piles[pile]);
+            }
+        }
+        foundations = node.foundations;
+        reindex();
+        score = node.score;
+        return true;
+    }
+    
+    /** Number of moves that can currently be undone. */
+    public int historySize() {
+        return history.current().depth;
+    }
+    
+    /** Number of positions stored in the undo tree, across all lines. */
+    public int historyNodes() {
+        return history.size();
+    }
+    
+    /** Estimated heap bytes per position stored in the undo tree. */
+    public double historyBytesPerNode() {
+        return history.bytesPerNode();
+    }
+    
+    private void record(int move) {
+        history.add(move, piles, foundations, score, hash());
+    }
+    
+    /** Play a Moves record against the current position; returns the record actually played. */
+    private int apply(int move) {
+        int from = Moves.from(move);
+        if (Moves.isTalon(move)) {
+            int wasteBefore = piles[WASTE].size();
+            int wasteSize = Moves.wasteSize(move);
+            setWasteSize(wasteSize);
+            int played = play(WASTE, wasteSize - 1 - Moves.depth(move), Moves.to(move));
+            return Moves.talon(Moves.to(move), wasteBefore, wasteSize, Moves.depth(move), Moves.scoreDelta(played));
+        }
+        if (Moves.isStock(move)) {
+            return draw();
+        }
+        int size = piles[from].size();
+        return play(from, from == WASTE ? size - 1 - Moves.depth(move) : size - Moves.count(move), Moves.to(move));
+    }
+    
+    /** Put the cards of a Moves record back where they came from. */
+    private void reverse(int move) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int count = Moves.count(move);
+        CardPile source = piles[from];
+        if (Moves.isTalon(move)) {
+            reverse(Moves.of(WASTE, to, 1, Moves.depth(move), false, Moves.scoreDelta(move)));
+            setWasteSize(count);
+            return;
+        }
+        if (from == STOCK) {
+            // Undraw
+            for (int i = 0; i < count; i++) {
+                source.push(Cards.faceDown(piles[WASTE].pop()));
+            }
+            return;
+        }
+        if (to == STOCK) {
+            // Unrecycle
+            for (int i = 0; i < count; i++) {
+                source.push(Cards.faceUp(piles[STOCK].pop()));
+            }
+            return;
+        }
+        
+        if (Moves.flips(move)) {
+            source.set(source.size() - 1, Cards.faceDown(source.top()));
+        }
+        int index = source.size() - Moves.depth(move);
+        if (isFoundation(to)) {
+            int suit = to - FOUNDATION;
+            source.insertAt(index, Cards.faceUp(Cards.of(suit, foundationRank(suit))));
+            foundations -= 1 << (suit << 2);
+        } else if (from == WASTE) {
+            source.insertAt(index, piles[to].pop());
+        } else {
+            piles[to].moveRunTo(piles[to].size() - count, source);
+        }
+    }
+    
+    /** Click the stock round (draws and recycles, talon order unchanged) until the waste holds {@code size} cards. */
+    private void setWasteSize(int size) {
+        CardPile stock = piles[STOCK];
+        CardPile waste = piles[WASTE];
+        while (waste.size() > size) {
+            stock.push(Cards.faceDown(waste.pop()));
+        }
+        while (waste.size() < size) {
+            waste.push(Cards.faceUp(stock.pop()));
+        }
+    }
+}
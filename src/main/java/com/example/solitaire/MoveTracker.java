@@ -0,0 +1,109 @@
+package com.example.solitaire;
+
+/**
+ * Incrementally maintained count of legal card moves for a KlondikeEngine.
+ * - Counts are kept per (source, target) pair: sources are the waste and the seven
+ *   columns, targets are the foundations (as one) and the seven columns
+ * - After a move only the rows and columns of the piles it touched are recounted,
+ *   so "is there any move?", "any move between these piles?" and "any progress move?"
+ *   are O(1) lookups
+ * - A progress move goes to a foundation, plays a waste card or turns a tableau card;
+ *   DeadEnds only has to search when there is none
+ * - Stock draws and recycles are not counted; the stock is always playable while non-empty
+ */
+final class MoveTracker {
+    private static final int SIDES = 8;
+    private static final int FOUNDATIONS = 0; // target index shared by all four foundations
+    
+    private final KlondikeEngine engine;
+    private final int[] pairs = new int[SIDES * SIDES];    // source * SIDES + target
+    private final int[] progress = new int[SIDES * SIDES]; // the progress moves among them
+    private int total;
+    private int progressTotal;
+    
+    MoveTracker(KlondikeEngine engine) {
+        this.engine = engine;
+    }
+    
+    /** Recount every pair, e.g. after a new deal or a restored position. */
+    void reset() {
+        for (int source = 0; source < SIDES; source++) {
+            for (int target = 0; target < SIDES; target++) {
+                recount(source, target);
+            }
+        }
+    }
+    
+    /** Recount the pairs that depend on a pile whose cards just changed. */
+    void touched(int pile) {
+        if (KlondikeEngine.isFoundation(pile)) {
+            // A foundation rank changed: any source may have gained or lost a foundation play
+            for (int source = 0; source < SIDES; source++) {
+                recount(source, FOUNDATIONS);
+            }
+            return;
+        }
+        int side = side(pile);
+        if (side < 0) return; // the stock is neither a source nor a target
+        for (int other = 0; other < SIDES; other++) {
+            recount(side, other);
+            if (side != 0) {
+                recount(other, side); // the waste is never a target
+            }
+        }
+    }
+    
+    /** Legal card moves in the position. */
+    int total() {
+        return total;
+    }
+    
+    /** Legal card moves that go to a foundation, play a waste card or turn a tableau card. */
+    int progress() {
+        return progressTotal;
+    }
+    
+    /** Legal card moves from one pile to another; any foundation id means all four foundations. */
+    int between(int from, int to) {
+        int source = side(from);
+        int target = KlondikeEngine.isFoundation(to) ? FOUNDATIONS : side(to);
+        if (source < 0 || target < 0 || target == FOUNDATIONS && !KlondikeEngine.isFoundation(to)) {
+            return 0; // the stock, or the waste as a target
+        }
+        return pairs[source * SIDES + target];
+    }
+    
+    /** Waste is source 0, column i is side i + 1; the stock has no side. */
+    private static int side(int pile) {
+        if (pile == KlondikeEngine.WASTE) return 0;
+        return KlondikeEngine.isTableau(pile) ? pile - KlondikeEngine.TABLEAU + 1 : -1;
+    }
+    
+    private void recount(int source, int target) {
+        int from = source == 0 ? KlondikeEngine.WASTE : KlondikeEngine.TABLEAU + source - 1;
+        int count = 0;
+        int progressing = 0;
+        if (target == FOUNDATIONS || KlondikeEngine.TABLEAU + target - 1 != from) {
+            int size = engine.size(from);
+            // Candidates: the visible waste cards, or the face-up run of a column
+            int lowest = source == 0 ? Math.max(0, size - engine.visibleWaste()) : 0;
+            for (int index = size - 1; index >= lowest; index--) {
+                int card = engine.cardAt(from, index);
+                if (!Cards.isFaceUp(card)) break;
+                int to = target == FOUNDATIONS ? KlondikeEngine.foundationFor(card) : KlondikeEngine.TABLEAU + target - 1;
+                if (engine.canMove(from, index, to)) {
+                    count++;
+                    boolean flips = source != 0 && index > 0 && !Cards.isFaceUp(engine.cardAt(from, index - 1));
+                    if (target == FOUNDATIONS || source == 0 || flips) {
+                        progressing++;
+                    }
+                }
+            }
+        }
+        int slot = source * SIDES + target;
+        total += count - pairs[slot];
+        progressTotal += progressing - progress[slot];
+        pairs[slot] = count;
+        progress[slot] = progressing;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.solitaire;
+
+/**
+ * Compact move records used by the undo journal.
+ * - A move is one int: source pile, target pile, card count, waste depth, flip flag and score delta
+ * - A stock draw is STOCK -> WASTE and a recycle is WASTE -> STOCK, each with the number of cards moved
+ * - A talon play is STOCK -> a foundation or column: clicking the stock until the waste holds a
+ *   given number of cards, then playing one of the visible waste cards. The count field holds
+ *   the waste size before, and the waste size played from has a field of its own
+ * - Records hold everything needed to reverse or replay the move in place
+ */
+public final class Moves {
+    public static final int NONE = 0;
+    
+    // Bit layout
+    private static final int TO_SHIFT = 4;
+    private static final int COUNT_SHIFT = 8;   // 5 bits: up to 24 cards for a recycle
+    private static final int DEPTH_SHIFT = 13;  // 2 bits: waste card taken from below the top
+    private static final int FLIP = 1 << 15;    // source tableau card turned face up
+    private static final int WASTE_SHIFT = 16;  // 5 bits: waste size a talon play is made from
+    private static final int SCORE_SHIFT = 24;  // signed byte
+    
+    private Moves() {}
+    
+    public static int of(int from, int to, int count, int depth, boolean flip, int scoreDelta) {
+        return from | to << TO_SHIFT | count << COUNT_SHIFT | depth << DEPTH_SHIFT
+            | (flip ? FLIP : 0) | scoreDelta << SCORE_SHIFT;
+    }
+    
+    /** A talon play of the waste card {@code depth} below the top once the waste holds {@code wasteSize} cards. */
+    public static int talon(int to, int wasteBefore, int wasteSize, int depth, int scoreDelta) {
+        return of(KlondikeEngine.STOCK, to, wasteBefore, depth, false, scoreDelta) | wasteSize << WASTE_SHIFT;
+    }
+    
+    public static int from(int move) { return move & 0xF; }
+    public static int to(int move) { return (move >>> TO_SHIFT) & 0xF; }
+    public static int count(int move) { return (move >>> COUNT_SHIFT) & 0x1F; }
+    
+    /** Position of a waste card below the waste top (0 = top card). */
+    public static int depth(int move) { return (move >>> DEPTH_SHIFT) & 0x3; }
+    public static boolean flips(int move) { return (move & FLIP) != 0; }
+    public static int scoreDelta(int move) { return move >> SCORE_SHIFT; }
+    
+    /** Waste size a talon play is made from. */
+    public static int wasteSize(int move) { return (move >>> WASTE_SHIFT) & 0x1F; }
+    
+    /** True for a stock draw or a waste recycle. */
+    public static boolean isStock(int move) {
+        return from(move) == KlondikeEngine.STOCK ? to(move) == KlondikeEngine.WASTE : to(move) == KlondikeEngine.STOCK;
+    }
+    
+    /** True for a talon play: stock clicks followed by a waste card play. */
+    public static boolean isTalon(int move) {
+        return from(move) == KlondikeEngine.STOCK && to(move) != KlondikeEngine.WASTE;
+    }
+    
+    public static String toString(int move) {
+        if (isTalon(move)) {
+            return "talon " + count(move) + "->" + wasteSize(move) + " depth " + depth(move) + " ->" + to(move) + " " + scoreDelta(move);
+        }
+        return from(move) + "->" + to(move) + " x" + count(move)
+            + (depth(move) > 0 ? " depth " + depth(move) : "")
+            + (flips(move) ? " flip" : "") + " " + scoreDelta(move);
+    }
+}
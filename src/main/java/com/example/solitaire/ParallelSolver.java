@@ -0,0 +1,187 @@
+package com.example.solitaire;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Solver that splits one search across a ForkJoinPool.
+ * - Each task runs the same depth-first search as Solver on its own engine copy, safe
+ *   foundation plays made as one forced step included
+ * - While the pool is short of queued work, a task near the root forks the sibling moves
+ *   of the node it is on as new tasks; idle workers steal them
+ * - All tasks share one lock-free, off-heap TranspositionTable, so a position claimed by
+ *   one worker is not searched again by another
+ * - The first task to reach a win publishes its line and every other task stops
+ */
+public class ParallelSolver {
+    private static final int SPLIT_DEPTH = 48; // only fork this close to the root
+    private static final int NODE_BATCH = 1024; // nodes counted locally before touching the shared count
+    
+    private final ForkJoinPool pool;
+    private final long maxNodes;
+    private final long maxMillis;
+    private final TranspositionTable table;
+    
+    // Per-solve state shared by all tasks
+    private final AtomicLong nodes = new AtomicLong();
+    private volatile long deadline;
+    private volatile int drawCount;
+    private volatile boolean stop;
+    private volatile boolean aborted;
+    private volatile boolean truncated;
+    private volatile int[] solution;
+    
+    public ParallelSolver(long maxNodes, long maxMillis) {
+        this(ForkJoinPool.commonPool(), maxNodes, maxMillis);
+    }
+    
+    public ParallelSolver(ForkJoinPool pool, long maxNodes, long maxMillis) {
+        this(pool, maxNodes, maxMillis, Solver.DEFAULT_TABLE_BYTES);
+    }
+    
+    /** A solver whose shared table uses at most {@code tableBytes} of native memory. */
+    public ParallelSolver(ForkJoinPool pool, long maxNodes, long maxMillis, long tableBytes) {
+        this.pool = pool;
+        this.maxNodes = maxNodes;
+        this.maxMillis = maxMillis;
+        this.table = new TranspositionTable(tableBytes);
+    }
+    
+    /** Decide whether {@code start} can be won. Solves run one at a time per instance. */
+    public synchronized Solver.Result solve(KlondikeEngine start) {
+        long begin = System.nanoTime();
+        byte[] position = new byte[KlondikeEngine.PACKED_SIZE];
+        start.pack(position);
+        drawCount = start.getDrawCount();
+        table.clear();
+        nodes.set(0);
+        deadline = maxMillis == Long.MAX_VALUE ? Long.MAX_VALUE : begin + maxMillis * 1_000_000;
+        stop = false;
+        aborted = false;
+        truncated = false;
+        solution = null;
+        
+        pool.invoke(new Search(position, new int[0]));
+        long millis = (System.nanoTime() - begin) / 1_000_000;
+        int[] line = solution;
+        if (line != null) {
+            return new Solver.Result(Solver.Outcome.SOLVED, line, nodes.get(), millis);
+        }
+        Solver.Outcome outcome = aborted || truncated ? Solver.Outcome.UNKNOWN : Solver.Outcome.UNSOLVABLE;
+        return new Solver.Result(outcome, new int[0], nodes.get(), millis);
+    }
+    
+    /** One subtree: the position after {@code prefix}, searched depth-first. */
+    private final class Search extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final byte[] position;
+        private final int[] prefix;
+        private final List<Search> forked = new ArrayList<>();
+        private KlondikeEngine engine;
+        private int[] path;
+        private int[][] moves;
+        private long pending;
+        
+        Search(byte[] position, int[] prefix) {
+            this.position = position;
+            this.prefix = prefix;
+        }
+        
+        @Override
+        protected void compute() {
+            engine = new KlondikeEngine();
+            engine.unpack(position);
+            engine.setDrawCount(drawCount);
+            path = Arrays.copyOf(prefix, Solver.MAX_DEPTH);
+            moves = new int[Solver.MAX_DEPTH][];
+            search(prefix.length);
+            nodes.addAndGet(pending);
+            for (int i = forked.size() - 1; i >= 0; i--) {
+                forked.get(i).join();
+            }
+        }
+        
+        private boolean search(int depth) {
+            if (stop) return false;
+            if (engine.isWon()) {
+                stop = true;
+                solution = Arrays.copyOf(path, depth);
+                return true;
+            }
+            if (++pending == NODE_BATCH && !countNodes()) {
+                return false;
+            }
+            if (!table.claim(engine.canonicalHash(), depth)) {
+                return false; // Searched already, or being searched by another task
+            }
+            if (depth == Solver.MAX_DEPTH) {
+                truncated = true;
+                return false;
+            }
+            int end = Solver.playSafe(engine, path, depth);
+            if (end > depth) {
+                if (search(end)) {
+                    return true;
+                }
+                Solver.unplay(engine, path, depth, end);
+                return false;
+            }
+            
+            int[] buffer = moves[depth];
+            if (buffer == null) {
+                buffer = moves[depth] = new int[KlondikeEngine.MAX_MOVES];
+            }
+            int count = Solver.order(engine, buffer, engine.generateMoves(buffer, true));
+            if (count > 1 && depth < SPLIT_DEPTH && getSurplusQueuedTaskCount() < 2) {
+                // Hand the siblings to other workers and keep the first move here. Forked last to
+                // first, so this worker's own deque pops them back in priority order.
+                for (int i = count - 1; i > 0; i--) {
+                    fork(depth, buffer[i]);
+                }
+                count = 1;
+            }
+            for (int i = 0; i < count; i++) {
+                int move = buffer[i];
+                engine.doMove(move);
+                path[depth] = move;
+                if (search(depth + 1)) {
+                    return true;
+                }
+                engine.undoMove(move);
+                if (stop) {
+                    return false;
+                }
+            }
+            return false;
+        }
+        
+        private void fork(int depth, int move) {
+            engine.doMove(move);
+            byte[] child = new byte[KlondikeEngine.PACKED_SIZE];
+            engine.pack(child);
+            engine.undoMove(move);
+            int[] line = Arrays.copyOf(path, depth + 1);
+            line[depth] = move;
+            Search task = new Search(child, line);
+            task.fork();
+            forked.add(task);
+        }
+        
+        /** Add the local node count to the shared one; false once a limit is hit. */
+        private boolean countNodes() {
+            long total = nodes.addAndGet(pending);
+            pending = 0;
+            if (total > maxNodes || System.nanoTime() > deadline) {
+                aborted = true;
+                stop = true;
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.solitaire;
+
+/**
+ * Immutable card pile that shares structure with the piles it was derived from.
+ * - A pile is a linked list from the top card down, so piles that differ only near
+ *   the top share every cell below the difference
+ * - The undo tree keeps one per pile per position; unchanged piles are shared outright
+ */
+final class PersistentPile {
+    static final PersistentPile EMPTY = new PersistentPile(null, Cards.NONE, 0);
+    
+    final PersistentPile below;
+    final byte card;
+    final byte size;
+    
+    private PersistentPile(PersistentPile below, int card, int size) {
+        this.below = below;
+        this.card = (byte) card;
+        this.size = (byte) size;
+    }
+    
+    PersistentPile push(int card) {
+        return new PersistentPile(this, card, size + 1);
+    }
+    
+    /** This pile cut down to its bottom {@code count} cards. */
+    PersistentPile bottom(int count) {
+        PersistentPile pile = this;
+        while (pile.size > count) {
+            pile = pile.below;
+        }
+        return pile;
+    }
+    
+    /** Write the cards into {@code out} bottom first; returns the pile size. */
+    int copyTo(byte[] out) {
+        for (PersistentPile pile = this; pile.size > 0; pile = pile.below) {
+            out[pile.size - 1] = pile.card;
+        }
+        return size;
+    }
+}
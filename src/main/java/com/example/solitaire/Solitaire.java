@@ -17,8 +17,10 @@ import java.util.*;
  * - Night mode toggle
  * - Sound effects
  * - Drag and drop card movements
- * - Auto-complete when possible
+ * - Auto-complete when possible, including any game the solver proves won
  * - Undo functionality
+ * - Solver: "is this deal winnable?" and the winning line
+ * - Numbered deals, with known results from a solved-deal index (solitaire.idx)
  */
 public class Solitaire extends JFrame {
     private static final long serialVersionUID = 1L;
@@ -31,24 +33,63 @@ public class Solitaire extends JFrame {
     // UI elements we need to update when toggling theme
     private JMenuBar menuBar;
     
-    // Game state
-    private Deck deck;
-    private Stack<Card> stockPile = new Stack<>();
-    private Stack<Card> wastePile = new Stack<>();
-    private Stack<Card>[] foundationPiles = new Stack[4]; // A-K by suit
-    private final Stack<Card>[] tableauPiles = new Stack[7]; // Main playing area
+    // Game state (piles, score, rules and undo live in the headless engine)
+    private final KlondikeEngine engine = new KlondikeEngine();
+    
+    // Time limit for solver requests from the Game menu
+    private static final long SOLVE_MILLIS = 2000;
+    private ParallelSolver solver; // created on first use
+    
+    // Solved-deal index written by BatchSolver --index, read if present
+    private static final String DEAL_INDEX = "solitaire.idx";
+    private DealIndex dealIndex;
+    private long dealHash; // position at the start of the current deal
+    
+    // Winnable-only New Game: deals come from a pool solved in the background
+    private static final int WINNABLE_POOL = 8;
+    private boolean winnableOnly = false;
+    private static final long WINNABLE_TABLE_BYTES = Solver.DEFAULT_TABLE_BYTES; // split between the producers
+    private WinnableDeals winnableDeals; // made when first turned on, running while winnableOnly is on
+    private static final double GENERATED_DIFFICULTY = 0.5;
+    private DealGenerator dealGenerator; // last resort for winnable deals, created on first use
+    
+    // Hints: every legal move ranked off the EDT, cycled through by repeated presses. Each new
+    // position is ranked speculatively right away, so Hint usually finds the answer cached.
+    private static final long HINT_MILLIS = 1500;
+    private static final long HINT_NODES = 100_000;
+    private static final int HINT_CACHE = 64;
+    private HintEngine hintEngine; // created on first use
+    private java.util.concurrent.Future<?> pendingHints; // ranking of the current position under way
+    private boolean hintWanted; // Hint was pressed before the ranking was ready
+    private int hintCursor;
+    
+    // Auto-complete animation: the finishing line (foundation moves, or a solver's win), played on a Swing timer
+    private static final long AUTO_COMPLETE_FRAME_MILLIS = 80; // per move
+    private static final long AUTO_COMPLETE_MILLIS = 2500;     // whole animation, at most
+    private javax.swing.Timer autoCompleteTimer; // running while the animation plays
+    private int[] autoCompleteLine;
+    private int autoCompleteNext;
+    private final AWTEventListener skipAutoComplete = event -> {
+        // Any press, on the board or a menu, skips to the end before it is handled
+        if (event.getID() == MouseEvent.MOUSE_PRESSED) {
+            finishAutoComplete();
+        }
+    };
+    private final Map<Long, HintEngine.Hints> hintCache = new LinkedHashMap<Long, HintEngine.Hints>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+        
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, HintEngine.Hints> eldest) {
+            return size() > HINT_CACHE;
+        }
+    };
     
     // Game statistics
     private int gamesPlayed = 0;
     private int gamesWon = 0;
-    private int currentScore = 0;
     private long gameStartTime;
     private boolean gameInProgress = false;
     
-    // Undo system
-    private Stack<GameState> undoStack = new Stack<>();
-    private static final int MAX_UNDO = 20;
-    
     // UI components
     private JLabel scoreLabel = new JLabel();
     private JLabel timeLabel = new JLabel();
@@ -70,11 +111,14 @@ public class Solitaire extends JFrame {
     private javax.swing.Timer gameTimer;
     
     // Animation and interaction
-    private Card draggedCard = null;
+    private int draggedCard = Cards.NONE;
     private CardStackPanel dragSource = null;
-    private java.util.List<Card> draggedCards = new ArrayList<>();
+    private int dragPile = -1;
+    private int dragIndex = -1;
+    private int dragCount = 0;
     private Point currentDragPosition = new Point();
     private boolean isDragging = false;
+    private final java.util.List<CardStackPanel> dropTargets = new ArrayList<>(); // outlined while dragging
     
     // Overlay for messages
     private final OverlayPanel overlay = new OverlayPanel();
@@ -93,7 +137,8 @@ public class Solitaire extends JFrame {
     public Solitaire() {
         super("Solitaire");
         loadConfig();
-        initGame();
+        loadDealIndex();
+        updateWinnableDeals();
         initUI();
         pack();
         
@@ -122,18 +167,6 @@ public class Solitaire extends JFrame {
         newGame();
     }
     
-    private void initGame() {
-        // Initialize foundation piles (Ace to King by suit)
-        for (int i = 0; i < 4; i++) {
-            foundationPiles[i] = new Stack<>();
-        }
-        
-        // Initialize tableau piles (7 columns)
-        for (int i = 0; i < 7; i++) {
-            tableauPiles[i] = new Stack<>();
-        }
-    }
-    
     /** Play card movement sound */
     private void playCardMoveSynth() {
         if (audioMuted) return;
@@ -445,6 +478,10 @@ public class Solitaire extends JFrame {
         newGameItem.addActionListener(e -> newGame());
         gameMenu.add(newGameItem);
         
+        JMenuItem playDealItem = new JMenuItem("Play Deal #...");
+        playDealItem.addActionListener(e -> playDeal());
+        gameMenu.add(playDealItem);
+        
         JMenuItem resetStatsItem = new JMenuItem("Reset Statistics");
         resetStatsItem.addActionListener(e -> resetStatistics());
         gameMenu.add(resetStatsItem);
@@ -455,6 +492,14 @@ public class Solitaire extends JFrame {
         undoItem.addActionListener(e -> undo());
         gameMenu.add(undoItem);
         
+        JMenuItem redoItem = new JMenuItem("Redo");
+        redoItem.addActionListener(e -> redo());
+        gameMenu.add(redoItem);
+        
+        JMenuItem switchLineItem = new JMenuItem("Switch Line");
+        switchLineItem.addActionListener(e -> switchLine());
+        gameMenu.add(switchLineItem);
+        
         JMenuItem hintItem = new JMenuItem("Hint");
         hintItem.addActionListener(e -> showHint());
         gameMenu.add(hintItem);
@@ -463,6 +508,14 @@ public class Solitaire extends JFrame {
         autoCompleteItem.addActionListener(e -> autoComplete());
         gameMenu.add(autoCompleteItem);
         
+        JMenuItem winnableItem = new JMenuItem("Is This Deal Winnable?");
+        winnableItem.addActionListener(e -> solveInBackground(false));
+        gameMenu.add(winnableItem);
+        
+        JMenuItem solutionItem = new JMenuItem("Show Solution");
+        solutionItem.addActionListener(e -> solveInBackground(true));
+        gameMenu.add(solutionItem);
+        
         gameMenu.addSeparator();
         
         JCheckBoxMenuItem nightModeItem = new JCheckBoxMenuItem("Night Mode", NIGHT_MODE);
@@ -481,6 +534,14 @@ public class Solitaire extends JFrame {
         });
         gameMenu.add(muteItem);
         
+        JCheckBoxMenuItem winnableOnlyItem = new JCheckBoxMenuItem("Winnable Deals Only", winnableOnly);
+        winnableOnlyItem.addActionListener(e -> {
+            winnableOnly = winnableOnlyItem.isSelected();
+            updateWinnableDeals();
+            saveConfig();
+        });
+        gameMenu.add(winnableOnlyItem);
+        
         menuBar.add(gameMenu);
         setJMenuBar(menuBar);
         
@@ -507,11 +568,11 @@ public class Solitaire extends JFrame {
             @Override
             public void mousePressed(MouseEvent e) {
                 CardStackPanel panel = (CardStackPanel) e.getSource();
-                Card card = panel.getCardAt(e.getPoint());
-                if (card != null && card.isFaceUp()) {
+                int card = panel.getCardAt(e.getPoint());
+                if (card != Cards.NONE && Cards.isFaceUp(card)) {
                     // Provide feedback for waste pile card selection
-                    if (panel == wastePanel && !wastePile.isEmpty()) {
-                        statusLabel.setText("Selected waste card: " + card + " (ready to move)");
+                    if (panel == wastePanel && !engine.isEmpty(KlondikeEngine.WASTE)) {
+                        statusLabel.setText("Selected waste card: " + Cards.toString(card) + " (ready to move)");
                     }
                     startDrag(panel, card, e.getPoint());
                 }
@@ -519,14 +580,14 @@ public class Solitaire extends JFrame {
             
             @Override
             public void mouseDragged(MouseEvent e) {
-                if (draggedCard != null) {
+                if (draggedCard != Cards.NONE) {
                     continueDrag(e);
                 }
             }
             
             @Override
             public void mouseReleased(MouseEvent e) {
-                if (draggedCard != null) {
+                if (draggedCard != Cards.NONE) {
                     endDrag(e);
                 }
             }
@@ -536,8 +597,8 @@ public class Solitaire extends JFrame {
                 // Double-click to auto-move to foundation
                 if (e.getClickCount() == 2) {
                     CardStackPanel panel = (CardStackPanel) e.getSource();
-                    Card card = panel.getCardAt(e.getPoint());
-                    if (card != null && card.isFaceUp()) {
+                    int card = panel.getCardAt(e.getPoint());
+                    if (card != Cards.NONE && Cards.isFaceUp(card)) {
                         tryAutoMoveToFoundation(panel, card);
                     }
                 }
@@ -553,50 +614,25 @@ public class Solitaire extends JFrame {
         }
     }
     
-    private void startDrag(CardStackPanel source, Card card, Point point) {
+    private void startDrag(CardStackPanel source, int card, Point point) {
         dragSource = source;
         draggedCard = card;
         isDragging = true;
         
-        // For tableau, allow dragging multiple cards if they form a valid sequence
-        draggedCards.clear();
-        if (isTableauPanel(source)) {
-            Stack<Card> pile = getStackForPanel(source);
-            int cardIndex = pile.indexOf(card);
-            if (cardIndex >= 0) {
-                // Only allow dragging from this card if it's face up
-                if (!card.isFaceUp()) {
-                    draggedCard = null;
-                    dragSource = null;
-                    isDragging = false;
-                    return;
-                }
-                // Add all cards from this position to the top
-                for (int i = cardIndex; i < pile.size(); i++) {
-                    Card c = pile.get(i);
-                    if (!c.isFaceUp()) break; // Stop if we hit a face-down card
-                    draggedCards.add(c);
-                }
-            }
-        } else {
-            // For waste pile, allow moving any visible card
-            if (source == wastePanel && !wastePile.isEmpty()) {
-                // Check if the clicked card is actually in the waste pile
-                if (wastePile.contains(card)) {
-                    // Allow moving any card from the waste pile
-                    draggedCards.add(card);
-                } else {
-                    // Card not found in waste pile - cancel drag
-                    draggedCard = null;
-                    dragSource = null;
-                    isDragging = false;
-                    return;
-                }
-            } else {
-                // For other single-card panels (foundations, etc.)
-                draggedCards.add(card);
-            }
+        // Moves carry every card from the grabbed one to the top of the pile
+        // (a single card from the waste pile, where any visible card may be moved)
+        dragPile = getPileForPanel(source);
+        dragIndex = dragPile < 0 ? -1 : engine.indexOf(dragPile, card);
+        if (dragIndex < 0 || !Cards.isFaceUp(card)) {
+            // Card not found in its pile - cancel drag
+            draggedCard = Cards.NONE;
+            dragSource = null;
+            dragCount = 0;
+            isDragging = false;
+            return;
         }
+        dragCount = engine.movingCount(dragPile, dragIndex);
+        findDropTargets();
         
         // Initialize drag position
         currentDragPosition.setLocation(point);
@@ -618,27 +654,21 @@ public class Solitaire extends JFrame {
         setCursor(Cursor.getPredefinedCursor(Cursor.MOVE_CURSOR));
     }
     
-    private void tryAutoMoveToFoundation(CardStackPanel source, Card card) {
-        // For waste pile, allow auto-move of any visible card
-        if (source == wastePanel && !wastePile.isEmpty()) {
-            // Check if the clicked card is in the waste pile
-            if (!wastePile.contains(card)) {
-                statusLabel.setText("Card not found in waste pile");
-                return;
-            }
-            // Any waste card can be moved to foundation
+    private void tryAutoMoveToFoundation(CardStackPanel source, int card) {
+        int pile = getPileForPanel(source);
+        int index = engine.indexOf(pile, card);
+        if (index < 0) {
+            statusLabel.setText("Card not found in pile");
+            return;
         }
         
-        // Try to move the card to an appropriate foundation
-        for (int i = 0; i < 4; i++) {
-            if (canMoveToFoundation(card, i)) {
-                java.util.List<Card> singleCard = new ArrayList<>();
-                singleCard.add(card);
-                performMove(source, foundationPanels[i], singleCard);
-                return;
-            }
+        // Any visible waste card or tableau top card can be moved to its suit's foundation
+        int target = KlondikeEngine.foundationFor(card);
+        if (engine.canMove(pile, index, target)) {
+            performMove(pile, index, target);
+            return;
         }
-        statusLabel.setText("Cannot move " + card + " to foundation");
+        statusLabel.setText("Cannot move " + Cards.toString(card) + " to foundation");
     }
     
     private void endDrag(MouseEvent e) {
@@ -660,7 +690,7 @@ public class Solitaire extends JFrame {
         if (target instanceof CardStackPanel) {
             CardStackPanel targetPanel = (CardStackPanel) target;
             if (targetPanel != dragSource && canDropOn(targetPanel)) {
-                performMove(dragSource, targetPanel, draggedCards);
+                performMove(dragPile, dragIndex, getDropPile(targetPanel));
             } else {
                 statusLabel.setText("Invalid move");
             }
@@ -668,111 +698,136 @@ public class Solitaire extends JFrame {
             statusLabel.setText("Drop cancelled");
         }
         
-        draggedCard = null;
+        draggedCard = Cards.NONE;
         dragSource = null;
-        draggedCards.clear();
+        dragPile = -1;
+        dragIndex = -1;
+        dragCount = 0;
+        dropTargets.clear();
     }
     
-    private boolean canDropOn(CardStackPanel target) {
-        if (draggedCards.isEmpty()) return false;
-        
-        Card bottomCard = draggedCards.get(0);
-        
-        if (isFoundationPanel(target)) {
-            // Only allow single cards to foundation
-            if (draggedCards.size() != 1) return false;
-            return canMoveToFoundation(bottomCard, getFoundationIndex(target));
-        } else if (isTableauPanel(target)) {
-            return canMoveToTableau(draggedCards, getTableauIndex(target));
+    // Outline the piles the dragged cards can go to; piles with no move from the source are skipped unchecked
+    private void findDropTargets() {
+        dropTargets.clear();
+        int foundation = KlondikeEngine.foundationFor(draggedCard);
+        if (engine.cardMoves(dragPile, foundation) > 0 && engine.canMove(dragPile, dragIndex, foundation)) {
+            dropTargets.add(foundationPanels[foundation - KlondikeEngine.FOUNDATION]);
         }
-        
-        return false;
-    }
-    
-    private void performMove(CardStackPanel source, CardStackPanel target, java.util.List<Card> cards) {
-        saveGameState(); // For undo
-        
-        Stack<Card> sourceStack = getStackForPanel(source);
-        Stack<Card> targetStack = getStackForPanel(target);
-        
-        // Remove cards from source
-        for (Card card : cards) {
-            sourceStack.remove(card);
-        }
-        
-        // Add cards to target
-        for (Card card : cards) {
-            targetStack.push(card);
-        }
-        
-        // Flip top card of source if it's face down
-        if (!sourceStack.isEmpty() && isTableauPanel(source)) {
-            Card topCard = sourceStack.peek();
-            if (!topCard.isFaceUp()) {
-                topCard.setFaceUp(true);
-                currentScore += 5; // Points for flipping card
+        for (int i = 0; i < tableauPanels.length; i++) {
+            int pile = KlondikeEngine.TABLEAU + i;
+            if (engine.cardMoves(dragPile, pile) > 0 && engine.canMove(dragPile, dragIndex, pile)) {
+                dropTargets.add(tableauPanels[i]);
             }
         }
-        
-        // Update score
-        if (isFoundationPanel(target)) {
-            currentScore += 10; // Points for moving to foundation
+    }
+    
+    private boolean canDropOn(CardStackPanel target) {
+        if (dragCount == 0) return false;
+        return engine.canMove(dragPile, dragIndex, getDropPile(target));
+    }
+    
+    // Foundations are kept by suit, so a drop on any foundation goes to the card's own
+    private int getDropPile(CardStackPanel target) {
+        int pile = getPileForPanel(target);
+        return KlondikeEngine.isFoundation(pile) ? KlondikeEngine.foundationFor(draggedCard) : pile;
+    }
+    
+    private void performMove(int from, int index, int to) {
+        if (!engine.move(from, index, to)) {
+            statusLabel.setText("Invalid move");
+            return;
         }
         
-        playSoundDebounced("move", this::playCardMoveSynth);
-        updateDisplay();
+        // Game over is settled first, so a finished position is not ranked for hints
         checkForWin();
-        
-        // Check for game over after each move
         checkForGameOver();
+        positionChanged();
+        playSoundDebounced("move", this::playCardMoveSynth);
+        updateDisplay();
     }
     
     private void newGame() {
-        if (gameInProgress) {
-            endGame(false);
+        if (winnableOnly) {
+            Long seed = winnableDeals.next();
+            if (seed != null) {
+                newGame(seed);
+                return;
+            }
+            newGeneratedGame();
+            return;
         }
-        
-        // Clear all piles
-        stockPile.clear();
-        wastePile.clear();
-        for (Stack<Card> pile : foundationPiles) {
-            pile.clear();
+        newGame(Deck.randomSeed());
+    }
+    
+    // Start or stop the background pool to match the Winnable Deals Only option
+    private void updateWinnableDeals() {
+        if (winnableOnly) {
+            if (winnableDeals == null) {
+                int producers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+                winnableDeals = new WinnableDeals(engine.getDrawCount(), dealIndex, WINNABLE_POOL, producers,
+                    Solver.DEFAULT_MAX_NODES, SOLVE_MILLIS, WINNABLE_TABLE_BYTES);
+            }
+            winnableDeals.start();
+        } else if (winnableDeals != null) {
+            winnableDeals.stop(); // kept, with its solvers, for the next time the option is turned on
         }
-        for (Stack<Card> pile : tableauPiles) {
-            pile.clear();
+    }
+    
+    private void playDeal() {
+        String input = JOptionPane.showInputDialog(this, "Deal number:", "Play Deal", JOptionPane.PLAIN_MESSAGE);
+        if (input == null) return;
+        try {
+            newGame(Long.parseLong(input.trim().replace("#", "")));
+        } catch (NumberFormatException e) {
+            statusLabel.setText("Not a deal number: " + input);
         }
+    }
+    
+    private void newGame(long seed) {
+        // Deal the layout for this deal number
+        beginGame(() -> engine.newGame(seed));
         
-        // Create and shuffle deck
-        deck = new Deck();
-        deck.shuffle();
-        
-        // Deal tableau (1 face-up on first pile, 2 on second with 1 face-up, etc.)
-        for (int i = 0; i < 7; i++) {
-            for (int j = 0; j <= i; j++) {
-                Card card = deck.deal();
-                if (j == i) {
-                    card.setFaceUp(true); // Top card face up
-                } else {
-                    card.setFaceUp(false); // Others face down
-                }
-                tableauPiles[i].push(card);
-            }
+        Solver.Outcome known = indexedOutcome(seed);
+        if (known == Solver.Outcome.SOLVED) {
+            statusLabel.setText("Deal #" + seed + " (winnable, difficulty " + dealIndex.difficulty(seed) + "). Good luck!");
+        } else if (known == Solver.Outcome.UNSOLVABLE) {
+            statusLabel.setText("Deal #" + seed + " (cannot be won). Good luck!");
+        } else {
+            statusLabel.setText("Deal #" + seed + ". Good luck!");
         }
-        
-        // Remaining cards go to stock
-        while (!deck.isEmpty()) {
-            Card card = deck.deal();
-            card.setFaceUp(false);
-            stockPile.push(card);
+    }
+    
+    // Deal a layout built to be winnable, when no solved deal is ready
+    private void newGeneratedGame() {
+        if (dealGenerator == null) {
+            dealGenerator = new DealGenerator(engine.getDrawCount());
+        }
+        byte[] layout = new byte[Cards.DECK_SIZE];
+        try {
+            dealGenerator.generate(Deck.randomSeed(), GENERATED_DIFFICULTY, layout);
+        } catch (IllegalStateException e) {
+            // Every attempt stalled: deal a random game rather than none
+            newGame(Deck.randomSeed());
+            return;
+        }
+        Deck deck = new Deck();
+        deck.load(layout);
+        beginGame(() -> engine.newGame(deck));
+        statusLabel.setText("Generated a winnable deal. Good luck!");
+    }
+    
+    private void beginGame(Runnable deal) {
+        if (gameInProgress) {
+            endGame(false);
         }
         
+        deal.run();
+        dealHash = engine.hash();
+        
         // Reset game state
-        currentScore = 0;
         gameStartTime = System.currentTimeMillis();
         gameInProgress = true;
-        undoStack.clear();
-        
-        statusLabel.setText("Game started. Good luck!");
+        positionChanged();
         updateDisplay();
         
         if (gameTimer != null) {
@@ -786,330 +841,330 @@ public class Solitaire extends JFrame {
     private void onStockClicked() {
         if (!gameInProgress) return;
         
-        saveGameState(); // For undo
-        
-        if (stockPile.isEmpty()) {
-            // Recycle waste pile back to stock
-            while (!wastePile.isEmpty()) {
-                Card card = wastePile.pop();
-                card.setFaceUp(false);
-                stockPile.push(card);
-            }
-            // No penalty for recycling - players can go through the deck as many times as needed
-            
-            // After recycling, check if game is over (no moves available)
-            checkForGameOver();
-        } else {
-            // Draw 3 cards (or remaining cards if less than 3)
-            int cardsToDraw = Math.min(3, stockPile.size());
-            for (int i = 0; i < cardsToDraw; i++) {
-                Card card = stockPile.pop();
-                card.setFaceUp(true);
-                wastePile.push(card);
-            }
-            
-            // After drawing cards, check if we can make any moves or if game is over
-            if (stockPile.isEmpty()) {
-                // We've now seen all cards, check for game over
-                checkForGameOver();
-            }
-        }
+        // Draw 3 cards, or recycle the waste when the stock is empty
+        engine.drawFromStock();
+        // Before positionChanged, so a dead position is not ranked for hints
+        checkForGameOver();
+        positionChanged();
         
         playSoundDebounced("stock", this::playCardMoveSynth);
         updateDisplay();
     }
     
-    private boolean canMoveToFoundation(Card card, int foundationIndex) {
-        Stack<Card> foundation = foundationPiles[foundationIndex];
-        
-        if (foundation.isEmpty()) {
-            return card.getRank() == 1; // Ace
+    private void undo() {
+        if (engine.undo()) {
+            positionChanged();
+            updateDisplay();
+            statusLabel.setText("Move undone.");
         }
-        
-        Card topCard = foundation.peek();
-        return card.getSuit().equals(topCard.getSuit()) && 
-               card.getRank() == topCard.getRank() + 1;
     }
     
-    private boolean canMoveToTableau(java.util.List<Card> cards, int tableauIndex) {
-        if (cards.isEmpty()) return false;
-        
-        Card bottomCard = cards.get(0);
-        Stack<Card> tableau = tableauPiles[tableauIndex];
-        
-        // Check if the sequence being moved is valid (alternating colors, descending rank)
-        for (int i = 0; i < cards.size() - 1; i++) {
-            Card current = cards.get(i);
-            Card next = cards.get(i + 1);
-            if (current.isRed() == next.isRed() || current.getRank() != next.getRank() + 1) {
-                return false;
-            }
-        }
-        
-        if (tableau.isEmpty()) {
-            return true; // Allow any card to be placed on empty tableau (not just Kings)
+    private void redo() {
+        if (engine.redo()) {
+            positionChanged();
+            updateDisplay();
+            statusLabel.setText("Move redone.");
         }
-        
-        Card topCard = tableau.peek();
-        return topCard.isFaceUp() && 
-               bottomCard.isRed() != topCard.isRed() && 
-               bottomCard.getRank() == topCard.getRank() - 1;
     }
     
-    private void undo() {
-        if (!undoStack.isEmpty()) {
-            GameState state = undoStack.pop();
-            restoreGameState(state);
-            currentScore -= 15; // Small penalty for undo
+    private void switchLine() {
+        if (engine.switchLine()) {
+            positionChanged();
             updateDisplay();
-            statusLabel.setText("Move undone.");
+            statusLabel.setText("Returned to another line of play.");
+        } else {
+            statusLabel.setText("No other line of play to return to.");
         }
     }
     
     private void showHint() {
-        // Simple hint system - look for obvious moves
-        String hint = findHint();
-        if (hint != null) {
-            statusLabel.setText("Hint: " + hint);
-        } else {
-            statusLabel.setText("No obvious moves available. Try drawing from stock.");
+        if (engine.cardMoves() == 0) {
+            // Nothing to rank: the stock is all there is to play
+            boolean talon = !engine.isEmpty(KlondikeEngine.STOCK) || !engine.isEmpty(KlondikeEngine.WASTE);
+            statusLabel.setText(talon ? "Hint: click the stock." : "No moves left.");
+            return;
         }
+        HintEngine.Hints hints = hintCache.get(engine.hash());
+        if (hints != null) {
+            showNextHint(hints);
+            return;
+        }
+        hintWanted = true;
+        statusLabel.setText("Looking for the best move...");
+        analysePosition();
     }
     
-    private String findHint() {
-        // Check for moves to foundation
-        for (int i = 0; i < 7; i++) {
-            if (!tableauPiles[i].isEmpty()) {
-                Card topCard = tableauPiles[i].peek();
-                if (topCard.isFaceUp()) {
-                    for (int j = 0; j < 4; j++) {
-                        if (canMoveToFoundation(topCard, j)) {
-                            return "Move " + topCard + " to foundation";
-                        }
-                    }
-                }
-            }
+    // Rank the current position in the background unless it is ranked or being ranked already
+    private void analysePosition() {
+        if (pendingHints != null || hintCache.containsKey(engine.hash())) {
+            return;
         }
-        
-        // Check waste pile
-        if (!wastePile.isEmpty()) {
-            Card wasteTop = wastePile.peek();
-            for (int j = 0; j < 4; j++) {
-                if (canMoveToFoundation(wasteTop, j)) {
-                    return "Move " + wasteTop + " from waste to foundation";
-                }
-            }
+        if (hintEngine == null) {
+            hintEngine = new HintEngine(HINT_MILLIS, HINT_NODES);
         }
-        
-        return null;
+        // The callback reaches the EDT after this method returns, so job[0] is set by then
+        java.util.concurrent.Future<?>[] job = new java.util.concurrent.Future<?>[1];
+        job[0] = hintEngine.analyse(engine, ranked -> SwingUtilities.invokeLater(() -> hintsReady(job[0], ranked)));
+        pendingHints = job[0];
     }
     
-    private void autoComplete() {
-        // Auto-complete when all cards are face up and only foundation moves remain
-        boolean canAutoComplete = true;
-        
-        // Check if all tableau cards are face up
-        for (Stack<Card> pile : tableauPiles) {
-            for (Card card : pile) {
-                if (!card.isFaceUp()) {
-                    canAutoComplete = false;
-                    break;
-                }
+    private void hintsReady(java.util.concurrent.Future<?> job, HintEngine.Hints ranked) {
+        hintCache.put(ranked.hash, ranked);
+        // An older ranking of this position may finish while a newer one is still pending;
+        // only the pending one's own result releases it, so the next move can still cancel it
+        if (job == pendingHints) {
+            pendingHints = null;
+        }
+        if (ranked.hash != engine.hash()) {
+            return; // Ranked for a position the player has left
+        }
+        if (hintWanted) {
+            hintWanted = false;
+            showNextHint(ranked);
+        }
+    }
+    
+    // Each press shows the next move in rank order, wrapping around
+    private void showNextHint(HintEngine.Hints hints) {
+        int count = hints.moves.length;
+        if (count == 0) {
+            statusLabel.setText("No moves left.");
+            return;
+        }
+        int i = hintCursor++ % count;
+        String verdict = "";
+        if (hints.outcomes[i] == Solver.Outcome.SOLVED) {
+            verdict = " - still wins";
+        } else if (hints.outcomes[i] == Solver.Outcome.UNSOLVABLE) {
+            verdict = " - cannot win after this";
+        }
+        statusLabel.setText("Hint " + (i + 1) + " of " + count + ": " + engine.describe(hints.moves[i]) + verdict);
+    }
+    
+    // Called after anything that changes the cards: hint work for the old position is dropped
+    // and the new position is ranked speculatively
+    private void positionChanged() {
+        if (pendingHints != null) {
+            pendingHints.cancel(true);
+            pendingHints = null;
+        }
+        hintWanted = false;
+        hintCursor = 0;
+        if (gameInProgress && !engine.isWon() && autoCompleteTimer == null && engine.cardMoves() > 0) {
+            analysePosition();
+        }
+    }
+    
+    // Solve a copy of the position off the EDT; the answer is dropped if the position changed meanwhile
+    private void solveInBackground(boolean showMoves) {
+        if (engine.hasSeed() && engine.hash() == dealHash && answerFromIndex(showMoves)) {
+            return;
+        }
+        ParallelSolver solver = solver();
+        KlondikeEngine start = engine.copy();
+        long hash = engine.hash();
+        statusLabel.setText("Solving...");
+        new Thread(() -> {
+            Solver.Result result = solver.solve(start);
+            java.util.List<String> lines = showMoves && result.outcome == Solver.Outcome.SOLVED
+                ? Solver.describe(start, result.solution) : null;
+            SwingUtilities.invokeLater(() -> showSolveResult(result, lines, hash));
+        }, "solitaire-solver").start();
+    }
+    
+    private ParallelSolver solver() {
+        if (solver == null) {
+            solver = new ParallelSolver(Solver.DEFAULT_MAX_NODES, SOLVE_MILLIS);
+        }
+        return solver;
+    }
+    
+    // Answer for an untouched deal straight from the index, without solving
+    private boolean answerFromIndex(boolean showMoves) {
+        long seed = engine.getSeed();
+        Solver.Outcome known = indexedOutcome(seed);
+        if (known != Solver.Outcome.SOLVED && known != Solver.Outcome.UNSOLVABLE) {
+            return false;
+        }
+        int[] solution = new int[0];
+        if (known == Solver.Outcome.SOLVED) {
+            try {
+                solution = dealIndex.solution(seed);
+            } catch (IOException e) {
+                return false;
             }
-            if (!canAutoComplete) break;
         }
-        
-        if (canAutoComplete && stockPile.isEmpty()) {
-            performAutoComplete();
-        } else {
-            statusLabel.setText("Auto-complete not available yet.");
+        Solver.Result result = new Solver.Result(known, solution, dealIndex.difficulty(seed), 0);
+        java.util.List<String> lines = showMoves && known == Solver.Outcome.SOLVED ? Solver.describe(engine, solution) : null;
+        showSolveResult(result, lines, engine.hash());
+        return true;
+    }
+    
+    // What the index knows about a deal under the current rules, or null
+    private Solver.Outcome indexedOutcome(long seed) {
+        if (dealIndex == null || dealIndex.getDrawCount() != engine.getDrawCount()) {
+            return null;
         }
+        return dealIndex.outcome(seed);
     }
     
-    private void performAutoComplete() {
-        boolean moved;
-        do {
-            moved = false;
-            
-            // Try to move cards to foundation
-            for (int i = 0; i < 7; i++) {
-                if (!tableauPiles[i].isEmpty()) {
-                    Card topCard = tableauPiles[i].peek();
-                    for (int j = 0; j < 4; j++) {
-                        if (canMoveToFoundation(topCard, j)) {
-                            tableauPiles[i].pop();
-                            foundationPiles[j].push(topCard);
-                            currentScore += 10;
-                            moved = true;
-                            break;
-                        }
-                    }
-                }
+    private void loadDealIndex() {
+        Path p = Paths.get(DEAL_INDEX);
+        if (Files.exists(p)) {
+            try {
+                dealIndex = DealIndex.open(p);
+            } catch (IOException e) {
+                // Play on without the index
             }
-            
-            // Try waste pile
-            if (!wastePile.isEmpty()) {
-                Card wasteTop = wastePile.peek();
-                for (int j = 0; j < 4; j++) {
-                    if (canMoveToFoundation(wasteTop, j)) {
-                        wastePile.pop();
-                        foundationPiles[j].push(wasteTop);
-                        currentScore += 10;
-                        moved = true;
-                        break;
+        }
+    }
+    
+    private void showSolveResult(Solver.Result result, java.util.List<String> lines, long hash) {
+        if (engine.hash() != hash) {
+            statusLabel.setText("The cards moved while solving - ask again.");
+            return;
+        }
+        switch (result.outcome) {
+            case SOLVED:
+                statusLabel.setText("Yes - this deal can be won from here (" + result.solution.length + " moves).");
+                if (lines != null) {
+                    StringBuilder text = new StringBuilder();
+                    for (int i = 0; i < lines.size(); i++) {
+                        text.append(i + 1).append(". ").append(lines.get(i)).append('\n');
                     }
+                    JTextArea area = new JTextArea(text.toString());
+                    area.setEditable(false);
+                    JScrollPane scroll = new JScrollPane(area);
+                    scroll.setPreferredSize(new Dimension(380, 420));
+                    JOptionPane.showMessageDialog(this, scroll, "Solution", JOptionPane.INFORMATION_MESSAGE);
                 }
-            }
-            
-            if (moved) {
-                updateDisplay();
-                try { Thread.sleep(100); } catch (InterruptedException e) {}
-            }
-        } while (moved);
-        
-        checkForWin();
+                break;
+            case UNSOLVABLE:
+                statusLabel.setText("No - this deal cannot be won from here.");
+                break;
+            default:
+                statusLabel.setText("Could not decide within the time limit.");
+                break;
+        }
     }
     
-    private void checkForWin() {
-        boolean won = true;
-        for (Stack<Card> foundation : foundationPiles) {
-            if (foundation.size() != 13) {
-                won = false;
-                break;
+    private void autoComplete() {
+        if (autoCompleteTimer != null) {
+            return;
+        }
+        // When all cards are face up and foundation moves alone finish the game, play those
+        if (engine.canAutoComplete()) {
+            int[] line = engine.autoCompleteLine();
+            if (line.length == cardsLeft()) {
+                performAutoComplete(line);
+                return;
             }
         }
         
-        if (won) {
-            endGame(true);
-        }
+        // Otherwise let the solver prove the game won, with cards still hidden or in the stock,
+        // and play its winning line
+        ParallelSolver solver = solver();
+        KlondikeEngine start = engine.copy();
+        long hash = engine.hash();
+        statusLabel.setText("Checking whether the game is won...");
+        new Thread(() -> {
+            Solver.Result result = solver.solve(start);
+            SwingUtilities.invokeLater(() -> autoFinish(result, hash));
+        }, "solitaire-solver").start();
     }
     
-    private void checkForGameOver() {
-        if (!gameInProgress) {
-            return; // Game already ended
+    private void autoFinish(Solver.Result result, long hash) {
+        if (engine.hash() != hash || autoCompleteTimer != null) {
+            statusLabel.setText("The cards moved while checking - ask again.");
+            return;
         }
-        
-        // Check if any moves are available
-        if (hasAvailableMoves()) {
-            return; // Moves still available
+        switch (result.outcome) {
+            case SOLVED:
+                statusLabel.setText("The game is won - finishing it (" + result.solution.length + " moves).");
+                performAutoComplete(result.solution);
+                break;
+            case UNSOLVABLE:
+                statusLabel.setText("Auto-complete not available: this game can no longer be won.");
+                break;
+            default:
+                statusLabel.setText("Auto-complete not available yet: no win found in time.");
+                break;
         }
-        
-        // If stock is empty and waste is empty, definitely game over
-        if (stockPile.isEmpty() && wastePile.isEmpty()) {
-            endGame(false);
-            statusLabel.setText("Game Over - No more moves available!");
-            showOverlay("GAME OVER", new Color(100, 0, 0), Color.WHITE, 3000);
-            return;
+    }
+    
+    private int cardsLeft() {
+        int left = Cards.DECK_SIZE;
+        for (int suit = 0; suit < 4; suit++) {
+            left -= engine.foundationRank(suit);
         }
-        
-        // If stock has cards but no current moves available, 
-        // check if going through the remaining stock could help
-        if (!stockPile.isEmpty()) {
-            // Don't declare game over yet if there are still stock cards to reveal
+        return left;
+    }
+    
+    // Play a finishing line back one move per timer tick. A click anywhere plays the rest at
+    // once, and the whole animation stays under AUTO_COMPLETE_MILLIS.
+    private void performAutoComplete(int[] line) {
+        autoCompleteLine = line;
+        autoCompleteNext = 0;
+        if (autoCompleteLine.length == 0) {
+            checkForWin();
             return;
         }
+        int frame = (int) Math.max(1, Math.min(AUTO_COMPLETE_FRAME_MILLIS, AUTO_COMPLETE_MILLIS / autoCompleteLine.length));
+        autoCompleteTimer = new javax.swing.Timer(frame, e -> autoCompleteTick());
+        Toolkit.getDefaultToolkit().addAWTEventListener(skipAutoComplete, AWTEvent.MOUSE_EVENT_MASK);
+        autoCompleteTimer.start();
+    }
         
-        // If we've seen all cards (stock empty) and no moves available
-        if (stockPile.isEmpty() && !hasAvailableMoves()) {
-            endGame(false);
-            statusLabel.setText("Game Over - No more moves available!");
-            showOverlay("GAME OVER", new Color(100, 0, 0), Color.WHITE, 3000);
+    private void autoCompleteTick() {
+        engine.makeMove(autoCompleteLine[autoCompleteNext++]);
+        if (autoCompleteNext == autoCompleteLine.length) {
+            stopAutoComplete();
         }
+        positionChanged();
+        updateDisplay();
+        checkForWin();
     }
     
-    private boolean hasAvailableMoves() {
-        // Debug: Add some logging to see what's being checked
-        int movesFound = 0;
-        
-        // Check waste pile to foundations - check all visible waste cards (up to 3)
-        if (!wastePile.isEmpty()) {
-            int visibleCards = Math.min(3, wastePile.size());
-            for (int cardIndex = 0; cardIndex < visibleCards; cardIndex++) {
-                Card wasteCard = wastePile.get(wastePile.size() - 1 - cardIndex);
-                
-                // Check if this waste card can move to foundations
-                for (int i = 0; i < 4; i++) {
-                    if (canMoveToFoundation(wasteCard, i)) {
-                        movesFound++;
-                        return true;
-                    }
-                }
-                
-                // Check if this waste card can move to tableau
-                for (int i = 0; i < 7; i++) {
-                    java.util.List<Card> singleCard = new ArrayList<>();
-                    singleCard.add(wasteCard);
-                    if (canMoveToTableau(singleCard, i)) {
-                        movesFound++;
-                        return true;
-                    }
-                }
-            }
+    // Play whatever is left of the auto-complete animation straight away
+    private void finishAutoComplete() {
+        if (autoCompleteTimer == null) {
+            return;
         }
-        
-        // Check tableau to foundations
-        for (int i = 0; i < 7; i++) {
-            if (!tableauPiles[i].isEmpty()) {
-                Card topCard = tableauPiles[i].peek();
-                if (topCard.isFaceUp()) {
-                    for (int j = 0; j < 4; j++) {
-                        if (canMoveToFoundation(topCard, j)) {
-                            movesFound++;
-                            return true;
-                        }
-                    }
-                }
-            }
+        while (autoCompleteNext < autoCompleteLine.length) {
+            engine.makeMove(autoCompleteLine[autoCompleteNext++]);
         }
-        
-        // Check tableau to tableau moves
-        for (int i = 0; i < 7; i++) {
-            if (!tableauPiles[i].isEmpty()) {
-                Card topCard = tableauPiles[i].peek();
-                if (topCard.isFaceUp()) {
-                    // Check if this card can move to another tableau
-                    for (int j = 0; j < 7; j++) {
-                        if (i != j) {
-                            java.util.List<Card> singleCard = new ArrayList<>();
-                            singleCard.add(topCard);
-                            if (canMoveToTableau(singleCard, j)) {
-                                movesFound++;
-                                return true;
-                            }
-                        }
-                    }
-                    
-                    // Check if we can move sequences from this tableau
-                    Stack<Card> pile = tableauPiles[i];
-                    for (int k = pile.size() - 1; k >= 0; k--) {
-                        Card card = pile.get(k);
-                        if (!card.isFaceUp()) break;
-                        
-                        java.util.List<Card> sequence = new ArrayList<>();
-                        for (int l = k; l < pile.size(); l++) {
-                            sequence.add(pile.get(l));
-                        }
-                        
-                        // Only check sequences of more than one card to avoid duplicate checking
-                        if (sequence.size() > 1) {
-                            for (int j = 0; j < 7; j++) {
-                                if (i != j && canMoveToTableau(sequence, j)) {
-                                    movesFound++;
-                                    return true;
-                                }
-                            }
-                        }
-                    }
-                }
-            }
+        stopAutoComplete();
+        positionChanged();
+        updateDisplay();
+        checkForWin();
+    }
+    
+    private void stopAutoComplete() {
+        autoCompleteTimer.stop();
+        autoCompleteTimer = null;
+        Toolkit.getDefaultToolkit().removeAWTEventListener(skipAutoComplete);
+    }
+    
+    private void checkForWin() {
+        if (engine.isWon()) {
+            endGame(true);
+        }
+    }
+    
+    private void checkForGameOver() {
+        if (!gameInProgress) {
+            return; // Game already ended
         }
         
-        // If no moves found, update status for debugging
-        if (movesFound == 0) {
-            statusLabel.setText("Checking for moves... none found.");
+        // Some move can still lead to progress, counting cards the stock has yet to bring up
+        if (!engine.isGameOver()) {
+            return;
         }
         
-        return false; // No moves found
+        // Nothing left but cycling the stock and shuffling runs
+        endGame(false);
+        statusLabel.setText("Game Over - No more progress possible!");
+        showOverlay("GAME OVER", new Color(100, 0, 0), Color.WHITE, 3000);
     }
     
     private void endGame(boolean won) {
@@ -1122,10 +1177,10 @@ public class Solitaire extends JFrame {
             gamesWon++;
             long gameTime = (System.currentTimeMillis() - gameStartTime) / 1000;
             int timeBonus = Math.max(0, 10000 - (int)gameTime * 2); // Time bonus
-            currentScore += timeBonus;
+            engine.addScore(timeBonus);
             
             showOverlay("VICTORY!", new Color(0, 100, 0), Color.WHITE, 3000);
-            statusLabel.setText("Congratulations! You won! Score: " + currentScore);
+            statusLabel.setText("Congratulations! You won! Score: " + engine.getScore());
             playSoundDebounced("victory", this::playVictorySynth);
         }
         
@@ -1164,41 +1219,44 @@ public class Solitaire extends JFrame {
     private void updateDisplay() {
         // Update card panels
         stockPanel.clear();
-        if (!stockPile.isEmpty()) {
+        if (!engine.isEmpty(KlondikeEngine.STOCK)) {
             // Always show stock as face-down card back when cards are available
-            stockPanel.addCardView(new CardView(stockPile.peek(), false));
+            stockPanel.addCardView(new CardView(engine.top(KlondikeEngine.STOCK), false));
         }
         // When stock is empty, the empty slot outline will show (handled by CardStackPanel)
         
         wastePanel.clear();
-        if (!wastePile.isEmpty()) {
+        int wasteSize = engine.size(KlondikeEngine.WASTE);
+        if (wasteSize > 0) {
             // Show up to 3 cards from the waste pile, stacked horizontally
-            int cardsToShow = Math.min(3, wastePile.size());
-            int startIndex = Math.max(0, wastePile.size() - cardsToShow);
+            int cardsToShow = Math.min(KlondikeEngine.VISIBLE_WASTE, wasteSize);
+            int startIndex = Math.max(0, wasteSize - cardsToShow);
             
             for (int i = 0; i < cardsToShow; i++) {
-                Card card = wastePile.get(startIndex + i);
+                int card = engine.cardAt(KlondikeEngine.WASTE, startIndex + i);
                 wastePanel.addCardView(new CardView(card, true));
             }
         }
         
         for (int i = 0; i < 4; i++) {
             foundationPanels[i].clear();
-            if (!foundationPiles[i].isEmpty()) {
-                foundationPanels[i].addCardView(new CardView(foundationPiles[i].peek(), true));
+            int top = engine.top(KlondikeEngine.FOUNDATION + i);
+            if (top != Cards.NONE) {
+                foundationPanels[i].addCardView(new CardView(top, true));
             }
         }
         
         for (int i = 0; i < 7; i++) {
             tableauPanels[i].clear();
-            for (int j = 0; j < tableauPiles[i].size(); j++) {
-                Card card = tableauPiles[i].get(j);
-                tableauPanels[i].addCardView(new CardView(card, card.isFaceUp()));
+            int pile = KlondikeEngine.TABLEAU + i;
+            for (int j = 0; j < engine.size(pile); j++) {
+                int card = engine.cardAt(pile, j);
+                tableauPanels[i].addCardView(new CardView(card, Cards.isFaceUp(card)));
             }
         }
         
         // Update score
-        scoreLabel.setText("Score: " + currentScore);
+        scoreLabel.setText("Score: " + engine.getScore());
         
         repaint();
     }
@@ -1244,59 +1302,20 @@ public class Solitaire extends JFrame {
         }
     }
     
-    // Helper methods for panel identification
-    private boolean isFoundationPanel(CardStackPanel panel) {
-        for (CardStackPanel fp : foundationPanels) {
-            if (fp == panel) return true;
-        }
-        return false;
-    }
-    
-    private boolean isTableauPanel(CardStackPanel panel) {
-        for (CardStackPanel tp : tableauPanels) {
-            if (tp == panel) return true;
-        }
-        return false;
-    }
-    
-    private int getFoundationIndex(CardStackPanel panel) {
-        for (int i = 0; i < foundationPanels.length; i++) {
-            if (foundationPanels[i] == panel) return i;
-        }
-        return -1;
-    }
-    
-    private int getTableauIndex(CardStackPanel panel) {
-        for (int i = 0; i < tableauPanels.length; i++) {
-            if (tableauPanels[i] == panel) return i;
-        }
-        return -1;
-    }
-    
-    private Stack<Card> getStackForPanel(CardStackPanel panel) {
-        if (panel == wastePanel) return wastePile;
+    // Map a card panel to the engine pile it displays, or -1
+    private int getPileForPanel(CardStackPanel panel) {
+        if (panel == stockPanel) return KlondikeEngine.STOCK;
+        if (panel == wastePanel) return KlondikeEngine.WASTE;
         
         for (int i = 0; i < foundationPanels.length; i++) {
-            if (foundationPanels[i] == panel) return foundationPiles[i];
+            if (foundationPanels[i] == panel) return KlondikeEngine.FOUNDATION + i;
         }
         
         for (int i = 0; i < tableauPanels.length; i++) {
-            if (tableauPanels[i] == panel) return tableauPiles[i];
+            if (tableauPanels[i] == panel) return KlondikeEngine.TABLEAU + i;
         }
         
-        return null;
-    }
-    
-    // Game state management for undo
-    private void saveGameState() {
-        if (undoStack.size() >= MAX_UNDO) {
-            undoStack.remove(0); // Remove oldest state
-        }
-        undoStack.push(new GameState(this));
-    }
-    
-    private void restoreGameState(GameState state) {
-        state.restore(this);
+        return -1;
     }
     
     // Configuration persistence
@@ -1318,6 +1337,9 @@ public class Solitaire extends JFrame {
                             case "audioMuted":
                                 audioMuted = Boolean.parseBoolean(value);
                                 break;
+                            case "winnableOnly":
+                                winnableOnly = Boolean.parseBoolean(value);
+                                break;
                             case "gamesPlayed":
                                 gamesPlayed = Integer.parseInt(value);
                                 break;
@@ -1347,6 +1369,7 @@ public class Solitaire extends JFrame {
             StringBuilder content = new StringBuilder();
             content.append("nightMode=").append(NIGHT_MODE).append(System.lineSeparator());
             content.append("audioMuted=").append(audioMuted).append(System.lineSeparator());
+            content.append("winnableOnly=").append(winnableOnly).append(System.lineSeparator());
             content.append("gamesPlayed=").append(gamesPlayed).append(System.lineSeparator());
             content.append("gamesWon=").append(gamesWon).append(System.lineSeparator());
             content.append("windowBounds=").append(savedWindowX).append(",")
@@ -1359,78 +1382,13 @@ public class Solitaire extends JFrame {
         }
     }
     
-    // Inner classes (Card, Deck, etc.) similar to BlackJack but adapted for Solitaire
-    static class Card {
-        private final String suit;
-        private final int rank; // 1=Ace, 11=Jack, 12=Queen, 13=King
-        private boolean faceUp = false;
-        
-        Card(String suit, int rank) {
-            this.suit = suit;
-            this.rank = rank;
-        }
-        
-        public String getSuit() { return suit; }
-        public int getRank() { return rank; }
-        public boolean isFaceUp() { return faceUp; }
-        public void setFaceUp(boolean faceUp) { this.faceUp = faceUp; }
-        
-        public String getRankString() {
-            switch (rank) {
-                case 1: return "A";
-                case 11: return "J";
-                case 12: return "Q";
-                case 13: return "K";
-                default: return String.valueOf(rank);
-            }
-        }
-        
-        public boolean isRed() {
-            return suit.equals("♥") || suit.equals("♦");
-        }
-        
-        public boolean isBlack() {
-            return suit.equals("♠") || suit.equals("♣");
-        }
-        
-        @Override
-        public String toString() {
-            return getRankString() + suit;
-        }
-    }
-    
-    static class Deck {
-        private final java.util.List<Card> cards = new ArrayList<>();
-        
-        Deck() {
-            String[] suits = {"♠", "♥", "♦", "♣"};
-            for (String suit : suits) {
-                for (int rank = 1; rank <= 13; rank++) {
-                    cards.add(new Card(suit, rank));
-                }
-            }
-        }
-        
-        void shuffle() {
-            Collections.shuffle(cards);
-        }
-        
-        Card deal() {
-            return cards.isEmpty() ? null : cards.remove(cards.size() - 1);
-        }
-        
-        boolean isEmpty() {
-            return cards.isEmpty();
-        }
-    }
-    
     // CardView component similar to BlackJack
     static class CardView extends JComponent {
-        private final Card card;
+        private final int card;
         private boolean faceUp;
         private static final int W = 72, H = 96;
         
-        CardView(Card card, boolean faceUp) {
+        CardView(int card, boolean faceUp) {
             this.card = card;
             this.faceUp = faceUp;
             setPreferredSize(new Dimension(W, H));
@@ -1448,13 +1406,13 @@ public class Solitaire extends JFrame {
             g2.setColor(Color.BLACK);
             g2.drawRoundRect(2, 2, W-4, H-4, 8, 8);
             
-            if (faceUp && card != null) {
+            if (faceUp && card != Cards.NONE) {
                 // Draw card face with proper corners like real playing cards
-                g2.setColor(card.isRed() ? Color.RED : Color.BLACK);
+                g2.setColor(Cards.isRed(card) ? Color.RED : Color.BLACK);
                 g2.setFont(new Font("SansSerif", Font.BOLD, 12));
                 
-                String rankText = card.getRankString();
-                String suitText = card.getSuit();
+                String rankText = Cards.rankString(card);
+                String suitText = Cards.suitString(card);
                 
                 // Top-left corner
                 g2.drawString(rankText, 6, 16);
@@ -1468,10 +1426,10 @@ public class Solitaire extends JFrame {
                 g2Rotated.dispose();
                 
                 // Center symbol for face cards
-                if (card.getRank() > 10) {
+                if (Cards.rank(card) > 10) {
                     g2.setFont(new Font("SansSerif", Font.BOLD, 24));
                     FontMetrics fm = g2.getFontMetrics();
-                    String centerText = card.getRankString();
+                    String centerText = Cards.rankString(card);
                     int textW = fm.stringWidth(centerText);
                     int textH = fm.getHeight();
                     g2.drawString(centerText, (W - textW)/2, (H + textH)/2 - 3);
@@ -1572,7 +1530,7 @@ public class Solitaire extends JFrame {
             repaint();
         }
         
-        Card getCardAt(Point p) {
+        int getCardAt(Point p) {
             if (horizontalStacking && cardViews.size() > 1) {
                 // For horizontal stacking (waste pile), check from left to right
                 // to allow clicking on partially obscured cards
@@ -1607,7 +1565,7 @@ public class Solitaire extends JFrame {
                     }
                 }
             }
-            return null;
+            return Cards.NONE;
         }
     }
     
@@ -1716,64 +1674,29 @@ public class Solitaire extends JFrame {
         }
     }
     
-    // Game state for undo functionality
-    static class GameState {
-        private final Stack<Card> stockPile;
-        private final Stack<Card> wastePile;
-        private final Stack<Card>[] foundationPiles;
-        private final Stack<Card>[] tableauPiles;
-        private final int score;
-        
-        @SuppressWarnings("unchecked")
-        GameState(Solitaire game) {
-            stockPile = (Stack<Card>) game.stockPile.clone();
-            wastePile = (Stack<Card>) game.wastePile.clone();
-            foundationPiles = new Stack[4];
-            for (int i = 0; i < 4; i++) {
-                foundationPiles[i] = (Stack<Card>) game.foundationPiles[i].clone();
-            }
-            tableauPiles = new Stack[7];
-            for (int i = 0; i < 7; i++) {
-                tableauPiles[i] = (Stack<Card>) game.tableauPiles[i].clone();
-            }
-            score = game.currentScore;
-        }
-        
-        void restore(Solitaire game) {
-            game.stockPile.clear();
-            game.stockPile.addAll(stockPile);
-            game.wastePile.clear();
-            game.wastePile.addAll(wastePile);
-            
-            for (int i = 0; i < 4; i++) {
-                game.foundationPiles[i].clear();
-                game.foundationPiles[i].addAll(foundationPiles[i]);
-            }
-            
-            for (int i = 0; i < 7; i++) {
-                game.tableauPiles[i].clear();
-                game.tableauPiles[i].addAll(tableauPiles[i]);
-            }
-            
-            game.currentScore = score;
-        }
-    }
-    
     // Custom glass pane for drawing dragged cards
     class DragGlassPane extends JComponent {
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
             
-            if (isDragging && !draggedCards.isEmpty()) {
+            if (isDragging && dragCount > 0) {
                 Graphics2D g2 = (Graphics2D) g.create();
                 g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
                 
+                // Outline where the cards can be dropped
+                g2.setColor(new Color(255, 215, 0));
+                g2.setStroke(new BasicStroke(3));
+                for (CardStackPanel target : dropTargets) {
+                    Rectangle r = SwingUtilities.convertRectangle(target.getParent(), target.getBounds(), this);
+                    g2.drawRoundRect(r.x, r.y, r.width - 1, r.height - 1, 10, 10);
+                }
+                
                 // Draw semi-transparent dragged cards
                 g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.8f));
                 
-                for (int i = 0; i < draggedCards.size(); i++) {
-                    Card card = draggedCards.get(i);
+                for (int i = 0; i < dragCount; i++) {
+                    int card = engine.cardAt(dragPile, dragIndex + i);
                     int cardX = currentDragPosition.x;
                     int cardY = currentDragPosition.y + (i * 20); // Stack cards slightly
                     
@@ -1784,7 +1707,7 @@ public class Solitaire extends JFrame {
             }
         }
         
-        private void drawDraggedCard(Graphics2D g2, Card card, int x, int y) {
+        private void drawDraggedCard(Graphics2D g2, int card, int x, int y) {
             final int cardW = 72, cardH = 96;
             
             // Card shadow
@@ -1797,18 +1720,18 @@ public class Solitaire extends JFrame {
             g2.setColor(Color.BLACK);
             g2.drawRoundRect(x, y, cardW, cardH, 8, 8);
             
-            if (card.isFaceUp()) {
+            if (Cards.isFaceUp(card)) {
                 // Draw card face - clean center-only design for ghost card
-                g2.setColor(card.isRed() ? Color.RED : Color.BLACK);
+                g2.setColor(Cards.isRed(card) ? Color.RED : Color.BLACK);
                 
                 // Center symbol (larger for face cards)
-                if (card.getRank() > 10) {
+                if (Cards.rank(card) > 10) {
                     g2.setFont(new Font("SansSerif", Font.BOLD, 36));
                 } else {
                     g2.setFont(new Font("SansSerif", Font.BOLD, 24));
                 }
                 FontMetrics fm = g2.getFontMetrics();
-                String centerText = card.getRankString();
+                String centerText = Cards.rankString(card);
                 int textW = fm.stringWidth(centerText);
                 int textH = fm.getHeight();
                 g2.drawString(centerText, x + (cardW - textW)/2, y + (cardH + textH)/2 - 3);
@@ -1816,7 +1739,7 @@ public class Solitaire extends JFrame {
                 // Large suit symbol below rank
                 g2.setFont(new Font("SansSerif", Font.BOLD, 20));
                 fm = g2.getFontMetrics();
-                String suitText = card.getSuit();
+                String suitText = Cards.suitString(card);
                 int suitW = fm.stringWidth(suitText);
                 g2.drawString(suitText, x + (cardW - suitW)/2, y + (cardH + textH)/2 + 15);
             } else {
@@ -0,0 +1,245 @@
+package com.example.solitaire;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Depth-first Klondike solver under the engine's rules (Draw 1 or Draw 3, unlimited redeals).
+ * - Positions already searched are skipped through a transposition table keyed by the
+ *   engine's canonical hash, so positions equal up to column order or an exchange of
+ *   same-colour suits share an entry; the table also cuts stock cycles
+ * - Stock clicks are not searched one by one: each waste card the stock can bring up is a
+ *   single talon play (KlondikeEngine.generateMoves with talon plays)
+ * - Safe foundation plays (see safeMove) are forced: a run of them is made as one macro step,
+ *   searched as a single node with no alternatives
+ * - Moves are tried foundation plays first, then moves that turn a card, then waste and talon
+ *   plays, then other tableau moves
+ * - Node and time limits keep a search bounded; a search that hits one is UNKNOWN, as is one
+ *   whose thread is interrupted
+ * - The table lives off-heap within a fixed byte budget, reused from one solve to the next
+ */
+public class Solver {
+    public enum Outcome { SOLVED, UNSOLVABLE, UNKNOWN }
+    
+    public static final long DEFAULT_MAX_NODES = 5_000_000;
+    public static final int MAX_DEPTH = 1024;
+    public static final long DEFAULT_TABLE_BYTES = 16L << 20; // 1M entries
+    
+    /** Outcome of one solve, with the winning line when there is one. */
+    public static final class Result {
+        public final Outcome outcome;
+        public final int[] solution; // Moves records, empty unless SOLVED
+        public final long nodes;
+        public final long millis;
+        
+        Result(Outcome outcome, int[] solution, long nodes, long millis) {
+            this.outcome = outcome;
+            this.solution = solution;
+            this.nodes = nodes;
+            this.millis = millis;
+        }
+    }
+    
+    private final long maxNodes;
+    private final long maxMillis;
+    private final KlondikeEngine engine = new KlondikeEngine();
+    private final TranspositionTable table;
+    private final int[][] moves = new int[MAX_DEPTH][];
+    private final int[] path = new int[MAX_DEPTH];
+    private final byte[] position = new byte[KlondikeEngine.PACKED_SIZE];
+    
+    // Per-search state
+    private long nodes;
+    private long deadline;
+    private boolean aborted;   // a limit was hit
+    private boolean truncated; // the depth cap cut off part of the tree
+    private int length;
+    
+    public Solver() {
+        this(DEFAULT_MAX_NODES, Long.MAX_VALUE);
+    }
+    
+    public Solver(long maxNodes, long maxMillis) {
+        this(maxNodes, maxMillis, DEFAULT_TABLE_BYTES);
+    }
+    
+    /** A solver whose transposition table uses at most {@code tableBytes} of native memory. */
+    public Solver(long maxNodes, long maxMillis, long tableBytes) {
+        this.maxNodes = maxNodes;
+        this.maxMillis = maxMillis;
+        this.table = new TranspositionTable(tableBytes);
+    }
+    
+    /** Decide whether {@code start} can be won. The position itself is not changed. */
+    public Result solve(KlondikeEngine start) {
+        return solve(start, Long.MAX_VALUE);
+    }
+    
+    /**
+     * Like solve(start), but also giving up at {@code deadline}, a System.nanoTime() value, if
+     * that comes before the solver's own time limit. Lets a caller share one time box between solves.
+     */
+    public Result solve(KlondikeEngine start, long deadline) {
+        long begin = System.nanoTime();
+        start.pack(position);
+        engine.unpack(position);
+        engine.setDrawCount(start.getDrawCount());
+        table.clear();
+        nodes = 0;
+        this.deadline = Math.min(deadline, maxMillis == Long.MAX_VALUE ? Long.MAX_VALUE : begin + maxMillis * 1_000_000);
+        aborted = false;
+        truncated = false;
+        
+        boolean won = search(0);
+        long millis = (System.nanoTime() - begin) / 1_000_000;
+        if (won) {
+            int[] solution = new int[length];
+            System.arraycopy(path, 0, solution, 0, length);
+            return new Result(Outcome.SOLVED, solution, nodes, millis);
+        }
+        Outcome outcome = aborted || truncated ? Outcome.UNKNOWN : Outcome.UNSOLVABLE;
+        return new Result(outcome, new int[0], nodes, millis);
+    }
+    
+    /** Describe each move of a solution, replayed from {@code start}. */
+    public static List<String> describe(KlondikeEngine start, int[] solution) {
+        KlondikeEngine replay = start.copy();
+        List<String> lines = new ArrayList<>(solution.length);
+        for (int move : solution) {
+            lines.add(replay.describe(move));
+            replay.doMove(move);
+        }
+        return lines;
+    }
+    
+    private boolean search(int depth) {
+        if (engine.isWon()) {
+            length = depth;
+            return true;
+        }
+        if (++nodes > maxNodes || ((nodes & 0xFFF) == 0 && (System.nanoTime() > deadline || Thread.currentThread().isInterrupted()))) {
+            aborted = true;
+            return false;
+        }
+        if (!table.claim(engine.canonicalHash(), depth)) {
+            return false; // Searched already, or on the current line
+        }
+        if (depth == MAX_DEPTH) {
+            truncated = true;
+            return false;
+        }
+        int end = playSafe(engine, path, depth);
+        if (end > depth) {
+            if (search(end)) {
+                return true;
+            }
+            unplay(engine, path, depth, end);
+            return false;
+        }
+        
+        int[] buffer = moves[depth];
+        if (buffer == null) {
+            buffer = moves[depth] = new int[KlondikeEngine.MAX_MOVES];
+        }
+        int count = order(engine, buffer, engine.generateMoves(buffer, true));
+        for (int i = 0; i < count; i++) {
+            int move = buffer[i];
+            engine.doMove(move);
+            path[depth] = move;
+            if (search(depth + 1)) {
+                return true;
+            }
+            engine.undoMove(move);
+            if (aborted) {
+                return false;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Make every safe foundation play in turn, recording them in {@code path} from {@code depth};
+     * returns the depth after them. Search use only, like KlondikeEngine.doMove.
+     */
+    static int playSafe(KlondikeEngine engine, int[] path, int depth) {
+        int end = depth;
+        for (int move = safeMove(engine); move != Moves.NONE && end < MAX_DEPTH; move = safeMove(engine)) {
+            engine.doMove(move);
+            path[end++] = move;
+        }
+        return end;
+    }
+    
+    /** Take back the moves playSafe recorded from {@code depth} to {@code end}. */
+    static void unplay(KlondikeEngine engine, int[] path, int depth, int end) {
+        while (end > depth) {
+            engine.undoMove(path[--end]);
+        }
+    }
+    
+    /**
+     * A foundation play no winning line can need to hold back, or Moves.NONE: an ace or two, or
+     * a card whose opposite-colour cards one rank lower are on the foundations already, so
+     * nothing could go onto it. Only column tops qualify, and the waste top in Draw 1; in Draw 3
+     * taking a waste card regroups the stock and may change what later draws reach.
+     */
+    static int safeMove(KlondikeEngine engine) {
+        for (int pile = KlondikeEngine.TABLEAU; pile < KlondikeEngine.TABLEAU + 7; pile++) {
+            int card = engine.top(pile);
+            if (card != Cards.NONE && isSafe(engine, card)) {
+                int size = engine.size(pile);
+                boolean flip = size > 1 && !Cards.isFaceUp(engine.cardAt(pile, size - 2));
+                int score = KlondikeEngine.SCORE_FOUNDATION + (flip ? KlondikeEngine.SCORE_FLIP : 0);
+                return Moves.of(pile, KlondikeEngine.foundationFor(card), 1, 0, flip, score);
+            }
+        }
+        int card = engine.top(KlondikeEngine.WASTE);
+        if (engine.getDrawCount() == 1 && card != Cards.NONE && isSafe(engine, card)) {
+            return Moves.of(KlondikeEngine.WASTE, KlondikeEngine.foundationFor(card), 1, 0, false, KlondikeEngine.SCORE_FOUNDATION);
+        }
+        return Moves.NONE;
+    }
+    
+    private static boolean isSafe(KlondikeEngine engine, int card) {
+        if (!engine.canMoveToFoundation(card)) {
+            return false;
+        }
+        int rank = Cards.rank(card);
+        for (int suit = 0; suit < 4 && rank > 2; suit++) {
+            if (Cards.isRed(Cards.of(suit, 1)) != Cards.isRed(card) && engine.foundationRank(suit) < rank - 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /** Sort moves by priority (insertion sort; lists are short) and drop pointless ones. */
+    static int order(KlondikeEngine engine, int[] buffer, int count) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int move = buffer[i];
+            int priority = priority(engine, move);
+            if (priority < 0) continue;
+            int j = kept++;
+            while (j > 0 && priority(engine, buffer[j - 1]) < priority) {
+                buffer[j] = buffer[j - 1];
+                j--;
+            }
+            buffer[j] = move;
+        }
+        return kept;
+    }
+    
+    /** Static move priority: foundation 4, flip 3, waste or talon 2, tableau 1, stock 0, pointless -1. */
+    static int priority(KlondikeEngine engine, int move) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        if (Moves.isStock(move)) return 0;
+        if (KlondikeEngine.isFoundation(to)) return 4;
+        if (Moves.flips(move)) return 3;
+        if (from == KlondikeEngine.WASTE || Moves.isTalon(move)) return 2;
+        // A whole column moved to an empty column only relabels the columns
+        if (Moves.count(move) == engine.size(from) && engine.isEmpty(to)) return -1;
+        return 1;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.solitaire;
+
+/**
+ * Which talon positions stock clicks can reach, and after how many clicks, for a KlondikeEngine.
+ * - The talon is the waste (bottom to top) followed by the stock (top to bottom); draws and
+ *   recycles never reorder it, so a talon position is just the waste size
+ * - Clicks move the waste size up by the draw count (the last draw may be short) and a recycle
+ *   takes it back to 0, so in Draw 3 only some cards ever reach the playable window
+ * - The table depends only on the talon size, the waste size and the rules, and is rebuilt in
+ *   O(talon size) the first time it is read after one of them changes
+ */
+final class TalonTable {
+    private static final int MAX_TALON = 24;
+    
+    private final KlondikeEngine engine;
+    private final int[] clicks = new int[MAX_TALON + 1];    // by waste size, -1 if unreachable
+    private final int[] positions = new int[MAX_TALON + 1]; // reachable waste sizes, fewest clicks first
+    private int count;
+    private int key = -1; // talon size, waste size and draw count the table was built for
+    
+    TalonTable(KlondikeEngine engine) {
+        this.engine = engine;
+    }
+    
+    /** Stock clicks that take the waste to {@code wasteSize} cards, or -1 if none do. */
+    int clicks(int wasteSize) {
+        refresh();
+        return clicks[wasteSize];
+    }
+    
+    /** Reachable waste sizes other than the current one, in order of clicks needed. */
+    int positions() {
+        refresh();
+        return count;
+    }
+    
+    /** The {@code i}th reachable waste size; see positions(). */
+    int position(int i) {
+        return positions[i];
+    }
+    
+    private void refresh() {
+        int wasteSize = engine.size(KlondikeEngine.WASTE);
+        int size = wasteSize + engine.size(KlondikeEngine.STOCK);
+        int drawCount = engine.getDrawCount();
+        int current = size | wasteSize << 8 | drawCount << 16;
+        if (current == key) {
+            return;
+        }
+        key = current;
+        count = 0;
+        for (int w = 0; w <= size; w++) {
+            clicks[w] = -1;
+        }
+        clicks[wasteSize] = 0;
+        // Follow the clicks until they come back round to a position already reached
+        int w = wasteSize;
+        for (int click = 1; size > 0; click++) {
+            w = w == size ? 0 : Math.min(size, w + drawCount);
+            if (clicks[w] >= 0) {
+                break;
+            }
+            clicks[w] = click;
+            positions[count++] = w;
+        }
+    }
+}
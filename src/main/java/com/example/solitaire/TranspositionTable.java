@@ -0,0 +1,73 @@
+package com.example.solitaire;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Fixed-size, off-heap, lock-free set of position hashes claimed by solver searches.
+ * - Lives in one direct buffer sized from a byte budget, so search memory is bounded and
+ *   never seen by the garbage collector however long the solver runs
+ * - An entry is two longs, (hash ^ data, data), written with plain stores and no locks;
+ *   a reader only accepts an entry whose words XOR back to the hash it is looking for,
+ *   so an entry torn by two racing workers reads as a miss rather than a false hit
+ * - Open addressing in buckets of four entries (one 64-byte cache line); a full bucket
+ *   replaces its deepest entry, as shallow positions stand for bigger subtrees
+ * - data holds a generation and the claim depth; clear() starts a new generation, which
+ *   turns every old entry into a free slot without touching the memory
+ */
+final class TranspositionTable {
+    private static final int BUCKET = 4;
+    private static final int ENTRY_BYTES = 16;
+    private static final long MAX_BYTES = 1L << 30; // direct buffers are int-indexed
+    
+    private final LongBuffer words; // two words per entry
+    private final int bucketMask;
+    private long generation = 1;
+    
+    /** A table using at most {@code budgetBytes} of native memory (rounded down to a power of two). */
+    TranspositionTable(long budgetBytes) {
+        long bytes = Long.highestOneBit(Math.max(BUCKET * ENTRY_BYTES, Math.min(budgetBytes, MAX_BYTES)));
+        words = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder()).asLongBuffer();
+        bucketMask = (int) (bytes / (BUCKET * ENTRY_BYTES)) - 1;
+    }
+    
+    /** Native bytes held by the table. */
+    long bytes() {
+        return (long) words.capacity() * Long.BYTES;
+    }
+    
+    /** Claim a position for searching at {@code depth}. Returns false if a search already claimed it. */
+    boolean claim(long hash, int depth) {
+        long data = generation << 32 | (depth + 1);
+        int base = ((int) hash & bucketMask) * BUCKET * 2;
+        int victim = base;
+        long victimRank = -1;
+        for (int w = base; w < base + BUCKET * 2; w += 2) {
+            long stored = words.get(w + 1);
+            boolean live = stored >>> 32 == generation;
+            if (live && (words.get(w) ^ stored) == hash) {
+                return false;
+            }
+            long rank = live ? stored & 0xFFFFFFFFL : Long.MAX_VALUE; // Fill free slots first
+            if (rank > victimRank) {
+                victim = w;
+                victimRank = rank;
+            }
+        }
+        words.put(victim, hash ^ data);
+        words.put(victim + 1, data);
+        return true;
+    }
+    
+    /** Forget every entry. Not safe while a search is using the table. */
+    void clear() {
+        if (++generation == 1L << 32) {
+            // Generations wrapped: old entries could look live again, so wipe for real
+            for (int i = 0; i < words.capacity(); i++) {
+                words.put(i, 0);
+            }
+            generation = 1;
+        }
+    }
+}
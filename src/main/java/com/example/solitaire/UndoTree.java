@@ -0,0 +1,189 @@
+package com.example.solitaire;
+
+/**
+ * Branching move history for a KlondikeEngine.
+ * - Every position reached is a node holding the Moves record that led to it, so undo
+ *   and redo still reverse or replay moves in place
+ * - Playing a new move after an undo starts a new branch; the old line stays in the tree
+ * - Each node also stores its position as persistent piles shared with its parent, so
+ *   any abandoned line can be restored directly at the cost of the cells that changed
+ * - Nodes carry the position's Zobrist hash; replaying a move that reaches a position
+ *   already stored as a child revisits that child instead of adding a duplicate
+ */
+final class UndoTree {
+    // Estimated heap cost with compressed references: object headers plus fields, 8-byte aligned
+    static final int NODE_BYTES = 56;
+    static final int PILE_ARRAY_BYTES = 56;
+    static final int CELL_BYTES = 24;
+    
+    // Snapshot slots: stock, waste and the seven tableau columns
+    private static final int SLOTS = 9;
+    
+    static final class Node {
+        final Node parent;
+        Node firstChild;
+        Node nextSibling;
+        Node redoChild; // the child redo follows: the most recently played or visited line
+        final int move;
+        final int depth;
+        final int score;
+        final int foundations;
+        final long hash;
+        final PersistentPile[] piles;
+        
+        Node(Node parent, int move, int score, int foundations, long hash, PersistentPile[] piles) {
+            this.parent = parent;
+            this.move = move;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+            this.score = score;
+            this.foundations = foundations;
+            this.hash = hash;
+            this.piles = piles;
+        }
+        
+        /** The stored pile for an engine pile id (not a foundation). */
+        PersistentPile pile(int pile) {
+            return piles[slot(pile)];
+        }
+    }
+    
+    private Node current;
+    private int nodes;
+    private long cells;
+    private final byte[] scratch = new byte[Cards.DECK_SIZE];
+    
+    /** Start a new tree whose root is the given position. */
+    void reset(CardPile[] piles, int foundations, int score, long hash) {
+        cells = 0;
+        PersistentPile[] snapshot = new PersistentPile[SLOTS];
+        for (int pile = 0; pile < KlondikeEngine.PILE_COUNT; pile++) {
+            if (!KlondikeEngine.isFoundation(pile)) {
+                snapshot[slot(pile)] = share(PersistentPile.EMPTY, piles[pile]);
+            }
+        }
+        current = new Node(null, Moves.NONE, score, foundations, hash, snapshot);
+        nodes = 1;
+    }
+    
+    /** Record a move just played; the resulting position becomes the current node. */
+    void add(int move, CardPile[] piles, int foundations, int score, long hash) {
+        for (Node child = current.firstChild; child != null; child = child.nextSibling) {
+            if (child.hash == hash) {
+                current.redoChild = child;
+                current = child;
+                return;
+            }
+        }
+        
+        // Only the piles the move touched can differ from the parent: two, or three for a talon play
+        PersistentPile[] snapshot = current.piles.clone();
+        update(snapshot, Moves.from(move), piles);
+        update(snapshot, Moves.to(move), piles);
+        if (Moves.isTalon(move)) {
+            update(snapshot, KlondikeEngine.WASTE, piles);
+        }
+        Node node = new Node(current, move, score, foundations, hash, snapshot);
+        node.nextSibling = current.firstChild;
+        current.firstChild = node;
+        current.redoChild = node;
+        current = node;
+        nodes++;
+    }
+    
+    /** Step back to the parent and return the move to reverse, or Moves.NONE at the root. */
+    int undo() {
+        if (current.parent == null) return Moves.NONE;
+        int move = current.move;
+        current = current.parent;
+        return move;
+    }
+    
+    /** Step forward along the redo line and return the move to replay, or Moves.NONE. */
+    int redo() {
+        if (current.redoChild == null) return Moves.NONE;
+        current = current.redoChild;
+        return current.move;
+    }
+    
+    boolean canUndo() {
+        return current.parent != null;
+    }
+    
+    boolean canRedo() {
+        return current.redoChild != null;
+    }
+    
+    Node current() {
+        return current;
+    }
+    
+    /**
+     * Switch to another line: find the nearest fork above the current position, take the
+     * next branch there and follow it to its latest position. Returns the new current node,
+     * or null when the current line has no fork.
+     */
+    Node nextLine() {
+        Node child = current;
+        Node fork = current.parent;
+        while (fork != null && fork.firstChild.nextSibling == null) {
+            child = fork;
+            fork = fork.parent;
+        }
+        if (fork == null) return null;
+        
+        Node next = child.nextSibling != null ? child.nextSibling : fork.firstChild;
+        fork.redoChild = next;
+        while (next.redoChild != null) {
+            next = next.redoChild;
+        }
+        current = next;
+        return next;
+    }
+    
+    /** Load a node's stored pile into an engine pile. */
+    void restore(Node node, int pile, CardPile target) {
+        target.copyFrom(scratch, 0, node.pile(pile).copyTo(scratch));
+    }
+    
+    int size() {
+        return nodes;
+    }
+    
+    /** Estimated heap bytes held by the tree. */
+    long estimatedBytes() {
+        return (long) nodes * (NODE_BYTES + PILE_ARRAY_BYTES) + cells * CELL_BYTES;
+    }
+    
+    /** Estimated heap bytes per stored position. */
+    double bytesPerNode() {
+        return (double) estimatedBytes() / nodes;
+    }
+    
+    private static int slot(int pile) {
+        return pile < KlondikeEngine.FOUNDATION ? pile : pile - 4;
+    }
+    
+    private void update(PersistentPile[] snapshot, int pile, CardPile[] piles) {
+        if (!KlondikeEngine.isFoundation(pile)) {
+            snapshot[slot(pile)] = share(current.pile(pile), piles[pile]);
+        }
+    }
+    
+    /**
+     * Build the persistent form of {@code pile}, reusing the longest bottom run it has in
+     * common with {@code previous} and allocating cells only for the cards above it.
+     */
+    private PersistentPile share(PersistentPile previous, CardPile pile) {
+        int common = Math.min(previous.copyTo(scratch), pile.size());
+        int k = 0;
+        while (k < common && scratch[k] == pile.get(k)) {
+            k++;
+        }
+        PersistentPile result = previous.bottom(k);
+        for (int i = k; i < pile.size(); i++) {
+            result = result.push(pile.get(i));
+            cells++;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.solitaire;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Pool of deal numbers already proven winnable, for a "winnable deals only" New Game.
+ * - Producer virtual threads deal random numbers, solve them and queue the winners; a
+ *   producer parks while the bounded queue is full, so a topped-up pool costs nothing
+ * - Taking a deal never waits: an empty queue falls back to a winnable deal picked from
+ *   the solved-deal index, if there is one
+ * - Deals the index already decides are queued or skipped without solving
+ * - The producers' solvers split one transposition table budget between them, and are kept
+ *   across stop() and start(), so toggling the option does not allocate native memory again
+ */
+public class WinnableDeals {
+    private static final int INDEX_PROBES = 1 << 16; // records scanned for a fallback deal
+    
+    private final int drawCount;
+    private final DealIndex index; // may be null
+    private final BlockingQueue<Long> ready;
+    private final long maxNodes;
+    private final long maxMillis;
+    private final long tableBytes; // shared by all the producers' solvers
+    private final Thread[] producers;
+    private final Solver[] solvers; // one per producer, made by its first run
+    
+    /**
+     * A pool for deals under {@code drawCount}; {@code index} may be null. The producers' solver
+     * tables together use at most {@code tableBytes} of native memory. Call start() to begin solving.
+     */
+    public WinnableDeals(int drawCount, DealIndex index, int capacity, int producers, long maxNodes, long maxMillis,
+            long tableBytes) {
+        this.drawCount = drawCount;
+        this.index = index != null && index.getDrawCount() == drawCount ? index : null;
+        this.ready = new ArrayBlockingQueue<>(capacity);
+        this.maxNodes = maxNodes;
+        this.maxMillis = maxMillis;
+        this.tableBytes = tableBytes;
+        this.producers = new Thread[producers];
+        this.solvers = new Solver[producers];
+    }
+    
+    public synchronized void start() {
+        for (int i = 0; i < producers.length; i++) {
+            if (producers[i] == null) {
+                int slot = i;
+                producers[i] = Thread.ofVirtual().name("winnable-deals-" + i).start(() -> produce(slot));
+            }
+        }
+    }
+    
+    /**
+     * Stop the producers and wait for them to finish. A solve in progress notices within a few
+     * thousand nodes, so this is quick, and the next start() can reuse their solvers.
+     */
+    public synchronized void stop() {
+        for (Thread producer : producers) {
+            if (producer != null) {
+                producer.interrupt();
+            }
+        }
+        boolean interrupted = false;
+        for (int i = 0; i < producers.length; i++) {
+            while (producers[i] != null) {
+                try {
+                    producers[i].join();
+                    producers[i] = null;
+                } catch (InterruptedException e) {
+                    interrupted = true; // Keep waiting: a live producer must not share its solver
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /** A winnable deal number without waiting, or null if neither the queue nor the index has one. */
+    public Long next() {
+        Long seed = ready.poll();
+        return seed != null ? seed : fromIndex();
+    }
+    
+    private void produce(int slot) {
+        if (solvers[slot] == null) {
+            solvers[slot] = new Solver(maxNodes, maxMillis, tableBytes / solvers.length);
+        }
+        Solver solver = solvers[slot];
+        KlondikeEngine engine = new KlondikeEngine();
+        engine.setDrawCount(drawCount);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long seed = Deck.randomSeed();
+                Solver.Outcome outcome = index == null ? null : index.outcome(seed);
+                if (outcome == null || outcome == Solver.Outcome.UNKNOWN) {
+                    engine.newGame(seed);
+                    outcome = solver.solve(engine).outcome;
+                }
+                if (outcome == Solver.Outcome.SOLVED) {
+                    ready.put(seed);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stopped
+        }
+    }
+    
+    /** A SOLVED deal from the index, scanning a bounded stretch from a random start. */
+    private Long fromIndex() {
+        if (index == null) {
+            return null;
+        }
+        long count = index.lastSeed() - index.firstSeed() + 1;
+        long start = ThreadLocalRandom.current().nextLong(count);
+        for (long i = 0; i < Math.min(count, INDEX_PROBES); i++) {
+            long seed = index.firstSeed() + (start + i) % count;
+            if (index.outcome(seed) == Solver.Outcome.SOLVED) {
+                return seed;
+            }
+        }
+        return null;
+    }
+}
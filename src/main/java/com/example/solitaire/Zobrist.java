@@ -0,0 +1,79 @@
+package com.example.solitaire;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist keys for 64-bit position hashes.
+ * - One key per (pile, position in pile, card), so stock and waste order is part of the hash
+ * - One extra key per face-up card, and one per (suit, foundation rank)
+ * - Keys come from a fixed seed, so hashes are the same in every run and every process
+ * - Suit-free keys, for canonical hashes, are one per (stock, waste or any column, position,
+ *   rank, face up or down)
+ */
+final class Zobrist {
+    private static final int SLOTS = 9;       // stock, waste and the seven tableau columns
+    private static final int DEPTH = 24;      // largest pile
+    private static final long[] CARD_KEYS = new long[SLOTS * DEPTH * Cards.DECK_SIZE];
+    private static final long[] FACE_UP_KEYS = new long[Cards.DECK_SIZE];
+    private static final long[] FOUNDATION_KEYS = new long[4 * 14];
+    private static final long[] SUIT_FREE_KEYS = new long[3 * DEPTH * 128]; // by slot, index and card code
+    
+    static {
+        SplittableRandom random = new SplittableRandom(0x9E3779B97F4A7C15L);
+        for (int i = 0; i < CARD_KEYS.length; i++) {
+            CARD_KEYS[i] = random.nextLong();
+        }
+        for (int i = 0; i < FACE_UP_KEYS.length; i++) {
+            FACE_UP_KEYS[i] = random.nextLong();
+        }
+        // Rank 0 (empty foundation) keeps key 0, so an empty position hashes its piles only
+        for (int suit = 0; suit < 4; suit++) {
+            for (int rank = 1; rank <= 13; rank++) {
+                FOUNDATION_KEYS[suit * 14 + rank] = random.nextLong();
+            }
+        }
+        // Filled in for spades, then copied to the other suits' codes
+        for (int i = 0; i < SUIT_FREE_KEYS.length; i += 128) {
+            for (int rank = 1; rank <= 13; rank++) {
+                long down = random.nextLong();
+                long up = random.nextLong();
+                for (int suit = 0; suit < 4; suit++) {
+                    SUIT_FREE_KEYS[i + Cards.of(suit, rank)] = down;
+                    SUIT_FREE_KEYS[i + Cards.faceUp(Cards.of(suit, rank))] = up;
+                }
+            }
+        }
+    }
+    
+    private Zobrist() {}
+    
+    /** Key for a card code at a position of a stock, waste or tableau pile. */
+    static long card(int pile, int index, int card) {
+        int slot = pile < KlondikeEngine.FOUNDATION ? pile : pile - 4;
+        int id = Cards.id(card);
+        long key = CARD_KEYS[(slot * DEPTH + index) * Cards.DECK_SIZE + id];
+        return Cards.isFaceUp(card) ? key ^ FACE_UP_KEYS[id] : key;
+    }
+    
+    /** Key for a card at a position, the same for every suit and for every tableau column. */
+    static long suitFree(int pile, int index, int card) {
+        int slot = Math.min(pile, 2); // the columns all share slot 2
+        return SUIT_FREE_KEYS[(slot * DEPTH + index) << 7 | card];
+    }
+    
+    /** SplitMix64 finalizer: column hashes are mixed before canonical hashes add them up. */
+    static long mix(long hash) {
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+    
+    /** Key for the packed foundation ranks (one nibble per suit). */
+    static long foundations(int foundations) {
+        long key = 0;
+        for (int suit = 0; suit < 4; suit++) {
+            key ^= FOUNDATION_KEYS[suit * 14 + (foundations >>> (suit << 2) & 0xF)];
+        }
+        return key;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.solitaire;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class CanonicalHashTest {
+    private static final int HEADER = 9 + 2; // pile sizes, then the foundation nibbles
+    
+    /** Reordering the columns and exchanging same-colour suits leaves canonicalHash unchanged. */
+    @Test
+    void equivalentPositionsShareCanonicalHash() {
+        Random random = new Random(25);
+        byte[] position = new byte[KlondikeEngine.PACKED_SIZE];
+        KlondikeEngine transformed = new KlondikeEngine();
+        new RandomGames(25, 150, 150).run((engine, where) -> {
+            engine.pack(position);
+            transformed.unpack(transform(position, random));
+            assertEquals(engine.canonicalHash(), transformed.canonicalHash(), where);
+        });
+    }
+    /** A packed position with the columns shuffled and a random choice of suit exchanges. */
+    private static byte[] transform(byte[] position, Random random) {
+        boolean swapBlack = random.nextBoolean();
+        boolean swapRed = random.nextBoolean();
+        
+        // Stock and waste stay first; the seven columns follow in a random order
+        int[] order = {0, 1, 2, 3, 4, 5, 6, 7, 8};
+        for (int i = order.length - 1; i > 2; i--) {
+            int j = 2 + random.nextInt(i - 1);
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        int[] start = new int[9];
+        for (int pile = 0, p = HEADER; pile < 9; p += position[pile++]) {
+            start[pile] = p;
+        }
+        
+        byte[] out = new byte[position.length];
+        int p = HEADER;
+        for (int i = 0; i < 9; i++) {
+            int pile = order[i];
+            out[i] = position[pile];
+            for (int k = 0; k < position[pile]; k++) {
+                out[p++] = (byte) exchange(position[start[pile] + k], swapBlack, swapRed);
+            }
+        }
+        int foundations = (position[9] & 0xFF) | (position[10] & 0xFF) << 8;
+        int exchanged = 0;
+        for (int suit = 0; suit < 4; suit++) {
+            int rank = foundations >>> (suit << 2) & 0xF;
+            exchanged |= rank << (Cards.suit(exchange(Cards.of(suit, 1), swapBlack, swapRed)) << 2);
+        }
+        out[9] = (byte) exchanged;
+        out[10] = (byte) (exchanged >>> 8);
+        return out;
+    }
+    
+    /** Swap ♠ with ♣ and/or ♥ with ♦, keeping rank and face. */
+    private static int exchange(int card, boolean swapBlack, boolean swapRed) {
+        int suit = Cards.suit(Cards.id(card));
+        if (Cards.isBlack(Cards.id(card)) ? swapBlack : swapRed) {
+            suit = 3 - suit;
+        }
+        return Cards.of(suit, Cards.rank(Cards.id(card))) | card & Cards.FACE_UP;
+    }
+}
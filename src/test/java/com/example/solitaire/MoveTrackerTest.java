@@ -0,0 +1,62 @@
+package com.example.solitaire;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class MoveTrackerTest {
+    /** Incremental counts match a full generateMoves count through play, undo, redo, line switches and talon plays. */
+    @Test
+    void countsMatchGeneratedMoves() {
+        int[] moves = new int[KlondikeEngine.MAX_MOVES];
+        int[][] pairs = new int[KlondikeEngine.PILE_COUNT][KlondikeEngine.PILE_COUNT];
+        new RandomGames(7, 100, 300).withHistory().withTalonPlays().run((engine, where) -> {
+            for (int[] row : pairs) {
+                java.util.Arrays.fill(row, 0);
+            }
+            int total = 0;
+            int progress = 0;
+            int count = engine.generateMoves(moves);
+            for (int i = 0; i < count; i++) {
+                int from = Moves.from(moves[i]);
+                int to = Moves.to(moves[i]);
+                if (from == KlondikeEngine.STOCK || to == KlondikeEngine.STOCK) continue;
+                total++;
+                pairs[from][KlondikeEngine.isFoundation(to) ? KlondikeEngine.FOUNDATION : to]++;
+                if (KlondikeEngine.isFoundation(to) || from == KlondikeEngine.WASTE || Moves.flips(moves[i])) {
+                    progress++;
+                }
+            }
+            assertEquals(total, engine.cardMoves(), where);
+            assertEquals(progress, engine.tracker().progress(), where);
+            for (int from = 0; from < KlondikeEngine.PILE_COUNT; from++) {
+                for (int to = 0; to < KlondikeEngine.PILE_COUNT; to++) {
+                    int expected = pairs[from][KlondikeEngine.isFoundation(to) ? KlondikeEngine.FOUNDATION : to];
+                    assertEquals(expected, engine.cardMoves(from, to), where + " from " + from + " to " + to);
+                }
+            }
+        });
+    }
+    
+    /** Switching the draw count changes which waste cards count. */
+    @Test
+    void drawCountRecountsTheWaste() {
+        KlondikeEngine engine = new KlondikeEngine();
+        int[] moves = new int[KlondikeEngine.MAX_MOVES];
+        for (long deal = 0; deal < 50; deal++) {
+            engine.newGame(deal);
+            engine.drawFromStock();
+            for (int drawCount : new int[] {1, 3, 1}) {
+                engine.setDrawCount(drawCount);
+                int count = engine.generateMoves(moves);
+                int cardMoves = 0;
+                for (int i = 0; i < count; i++) {
+                    if (Moves.from(moves[i]) != KlondikeEngine.STOCK && Moves.to(moves[i]) != KlondikeEngine.STOCK) {
+                        cardMoves++;
+                    }
+                }
+                assertEquals(cardMoves, engine.cardMoves(), "deal " + deal + " draw " + drawCount);
+            }
+        }
+    }
+}
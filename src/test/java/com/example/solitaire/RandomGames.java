@@ -0,0 +1,67 @@
+package com.example.solitaire;
+
+import java.util.Random;
+
+/**
+ * Random play for tests that check a property of every position reached.
+ * - Games are dealt by number in both Draw 1 and Draw 3, so a failure names a reproducible deal
+ * - Each step plays a random legal move, or with history on, sometimes undoes, redoes or
+ *   switches line instead; a game stops when it is won or nothing is left to play
+ */
+final class RandomGames {
+    /** A check run on each position before the next step; {@code where} names it in failures. */
+    interface Check {
+        void position(KlondikeEngine engine, String where);
+    }
+    
+    private final long seed;
+    private final int games;
+    private final int steps;
+    private boolean history;
+    private boolean talonPlays;
+    
+    RandomGames(long seed, int games, int steps) {
+        this.seed = seed;
+        this.games = games;
+        this.steps = steps;
+    }
+    
+    /** Also step with undo, redo and switchLine. */
+    RandomGames withHistory() {
+        history = true;
+        return this;
+    }
+    
+    /** Also play talon plays, as the searches do. */
+    RandomGames withTalonPlays() {
+        talonPlays = true;
+        return this;
+    }
+    
+    void run(Check check) {
+        Random random = new Random(seed);
+        int[] moves = new int[KlondikeEngine.MAX_MOVES];
+        for (int drawCount = 1; drawCount <= 3; drawCount += 2) {
+            for (int game = 0; game < games; game++) {
+                KlondikeEngine engine = new KlondikeEngine();
+                engine.setDrawCount(drawCount);
+                engine.newGame(game);
+                for (int step = 0; step < steps && !engine.isWon(); step++) {
+                    check.position(engine, "draw " + drawCount + " deal " + game + " step " + step);
+                    int choice = random.nextInt(12);
+                    if (history && choice == 0) {
+                        engine.undo();
+                    } else if (history && choice == 1) {
+                        engine.redo();
+                    } else if (history && choice == 2) {
+                        engine.switchLine();
+                    } else {
+                        int count = engine.generateMoves(moves, talonPlays && choice == 3);
+                        if (count == 0) break;
+                        engine.makeMove(moves[random.nextInt(count)]);
+                    }
+                }
+            }
+        }
+    }
+}
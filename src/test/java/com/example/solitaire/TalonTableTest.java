@@ -0,0 +1,80 @@
+package com.example.solitaire;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class TalonTableTest {
+    /** Talon plays reach exactly the positions that clicking through the stock and playing from the waste reaches. */
+    @Test
+    void talonPlaysMatchManualClicks() {
+        int[] moves = new int[KlondikeEngine.MAX_MOVES];
+        new RandomGames(23, 100, 150).run((engine, where) -> {
+            TalonTable table = new TalonTable(engine);
+            Set<Long> clicked = clickedWastePlays(engine);
+            Set<Long> played = wastePlays(engine);
+            long hash = engine.hash();
+            int score = engine.getScore();
+            int count = engine.generateMoves(moves, true);
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                if (!Moves.isTalon(move)) continue;
+                String play = where + " " + Moves.toString(move);
+                
+                // The table's click count brings the card up
+                int clicks = table.clicks(Moves.wasteSize(move));
+                assertTrue(clicks > 0, play);
+                KlondikeEngine copy = engine.copy();
+                for (int c = 0; c < clicks; c++) {
+                    copy.drawFromStock();
+                }
+                assertEquals(Moves.wasteSize(move), copy.size(KlondikeEngine.WASTE), play);
+                
+                engine.doMove(move);
+                played.add(engine.hash());
+                assertTrue(clicked.contains(engine.hash()), play);
+                engine.undoMove(move);
+                assertEquals(hash, engine.hash(), play);
+                assertEquals(score, engine.getScore(), play);
+                
+                KlondikeEngine undone = engine.copy();
+                undone.makeMove(move);
+                undone.undo();
+                assertEquals(hash, undone.hash(), play);
+            }
+            assertTrue(played.containsAll(clicked), where);
+        });
+    }
+    
+    /** Hashes after each waste play found by clicking until the stock comes back round. */
+    private static Set<Long> clickedWastePlays(KlondikeEngine engine) {
+        Set<Long> plays = new HashSet<>();
+        Set<Long> talons = new HashSet<>();
+        KlondikeEngine copy = engine.copy();
+        talons.add(copy.hash());
+        copy.drawFromStock();
+        while (talons.add(copy.hash())) {
+            plays.addAll(wastePlays(copy));
+            copy.drawFromStock();
+        }
+        return plays;
+    }
+    
+    /** Hashes after each play from the visible waste. */
+    private static Set<Long> wastePlays(KlondikeEngine engine) {
+        Set<Long> plays = new HashSet<>();
+        int[] moves = new int[KlondikeEngine.MAX_MOVES];
+        int count = engine.generateMoves(moves);
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (Moves.from(move) == KlondikeEngine.WASTE && Moves.to(move) != KlondikeEngine.STOCK) {
+                engine.doMove(move);
+                plays.add(engine.hash());
+                engine.undoMove(move);
+            }
+        }
+        return plays;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.solitaire;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class UndoTreeTest {
+    private static final int LINE = 40;
+    private static final int UNDONE = 15;
+    
+    // Shared piles leave each node a few new cells; a full copy would add 52
+    private static final int MAX_BYTES_PER_NODE = UndoTree.NODE_BYTES + UndoTree.PILE_ARRAY_BYTES + 8 * UndoTree.CELL_BYTES;
+    
+    @Test
+    void branchingHistoryKeepsBothLinesCheaply() {
+        KlondikeEngine engine = new KlondikeEngine();
+        engine.newGame(11);
+        byte[] dealt = pack(engine);
+        int[] moves = new int[KlondikeEngine.MAX_MOVES];
+        
+        for (int i = 0; i < LINE; i++) {
+            engine.generateMoves(moves);
+            engine.makeMove(moves[0]);
+        }
+        assertEquals(LINE, engine.historySize());
+        assertEquals(LINE + 1, engine.historyNodes(), "a single line holds one node per position");
+        
+        for (int i = 0; i < UNDONE; i++) {
+            assertTrue(engine.undo());
+        }
+        byte[] fork = pack(engine);
+        for (int i = 0; i < LINE; i++) {
+            int count = engine.generateMoves(moves);
+            engine.makeMove(moves[count - 1]);
+        }
+        assertEquals(2 * LINE + 1, engine.historyNodes(), "the abandoned line stays in the tree");
+        assertTrue(engine.historyBytesPerNode() < MAX_BYTES_PER_NODE,
+            engine.historyBytesPerNode() + " bytes per node, bound " + MAX_BYTES_PER_NODE);
+        
+        // The first line is still there, and leads back through the fork to the deal
+        assertTrue(engine.switchLine());
+        assertEquals(LINE, engine.historySize());
+        for (int i = 0; i < UNDONE; i++) {
+            assertTrue(engine.undo());
+        }
+        assertArrayEquals(fork, pack(engine));
+        for (int i = UNDONE; i < LINE; i++) {
+            assertTrue(engine.undo());
+        }
+        assertFalse(engine.canUndo());
+        assertArrayEquals(dealt, pack(engine));
+    }
+    
+    private static byte[] pack(KlondikeEngine engine) {
+        byte[] position = new byte[KlondikeEngine.PACKED_SIZE];
+        engine.pack(position);
+        return position;
+    }
+}
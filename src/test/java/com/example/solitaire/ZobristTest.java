@@ -0,0 +1,41 @@
+package com.example.solitaire;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class ZobristTest {
+    /** Incremental hash and card locations against a fresh unpack, through play, undo, redo and line switches. */
+    @Test
+    void incrementalStateMatchesRebuiltState() {
+        byte[] position = new byte[KlondikeEngine.PACKED_SIZE];
+        KlondikeEngine rebuilt = new KlondikeEngine();
+        new RandomGames(8, 100, 300).withHistory().withTalonPlays().run((engine, where) -> {
+            engine.pack(position);
+            rebuilt.unpack(position);
+            assertEquals(rebuilt.hash(), engine.hash(), where);
+            for (int pile = 0; pile < KlondikeEngine.PILE_COUNT; pile++) {
+                for (int index = 0; index < engine.size(pile); index++) {
+                    int card = engine.cardAt(pile, index);
+                    assertEquals(pile, engine.pileOf(card), where + " " + Cards.toString(card));
+                    assertEquals(index, engine.indexOf(pile, card), where + " " + Cards.toString(card));
+                }
+            }
+        });
+    }
+    
+    /** doMove and undoMove, as the solvers use them, leave the hash where it was. */
+    @Test
+    void searchMovesRestoreHash() {
+        int[] moves = new int[KlondikeEngine.MAX_MOVES];
+        new RandomGames(9, 100, 200).run((engine, where) -> {
+            long hash = engine.hash();
+            int count = engine.generateMoves(moves, true);
+            for (int i = 0; i < count; i++) {
+                engine.doMove(moves[i]);
+                engine.undoMove(moves[i]);
+                assertEquals(hash, engine.hash(), where + " " + Moves.toString(moves[i]));
+            }
+        });
+    }
+}